@@ -0,0 +1,46 @@
+package de.sn0rt;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ClickEventBenchmark
+{
+	RingBuffer<ClickEvent> buffer;
+	ClickEvent event;
+
+	@Setup
+	public void setup()
+	{
+		buffer = new RingBuffer<>(65536);
+		event = ClickEvent.of("abc12345", "https://example.com/", "Mozilla/5.0", "203.0.113.7", "en-US,en;q=0.9");
+	}
+
+	// What a redirect pays: the offer, contended by all benchmark threads.
+	// A background thread is not available in JMH state, so the consumer
+	// drains whenever the buffer is half full.
+	@Benchmark
+	@Threads(4)
+	public boolean publish()
+	{
+		if (buffer.size() > buffer.capacity() / 2)
+		{
+			buffer.drainTo(new ArrayList<>(), 1024);
+		}
+		return buffer.offer(event);
+	}
+
+	@Benchmark
+	public ClickEvent createEvent()
+	{
+		return ClickEvent.of("abc12345", "https://example.com/", "Mozilla/5.0", "203.0.113.7", "en-US,en;q=0.9");
+	}
+}
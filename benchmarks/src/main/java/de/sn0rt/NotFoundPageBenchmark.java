@@ -0,0 +1,28 @@
+package de.sn0rt;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NotFoundPageBenchmark
+{
+	LandingPage landingPage;
+
+	@Setup
+	public void setup()
+	{
+		landingPage = new LandingPage();
+	}
+
+	@Benchmark
+	public String generateNotFoundHtml()
+	{
+		return landingPage.generateNotFoundHtml("abc12345");
+	}
+}
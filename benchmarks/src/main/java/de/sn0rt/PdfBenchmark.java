@@ -0,0 +1,71 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PdfBenchmark
+{
+	QrImageCache qrImageCache;
+	PdfService pdfService;
+	ShortUrl shortUrl;
+	String fullUrl;
+
+	@Setup
+	public void setup()
+	{
+		QRCodeService qrCodeService = new QRCodeService();
+		qrCodeService.registry = new SimpleMeterRegistry();
+		qrCodeService.init();
+		qrImageCache = new QrImageCache();
+		qrImageCache.qrCodeService = qrCodeService;
+		qrImageCache.registry = new SimpleMeterRegistry();
+		qrImageCache.maxBytes = 1 << 20;
+		qrImageCache.init();
+		pdfService = new PdfService();
+		pdfService.qrImageCache = qrImageCache;
+		pdfService.registry = new SimpleMeterRegistry();
+		pdfService.init();
+		shortUrl = new ShortUrl("abc12345", "https://example.com/some/long/landing/page?utm_source=print");
+		fullUrl = "http://localhost:8080/" + shortUrl.shortCode;
+	}
+
+	// The QR image comes from the warm cache, as for repeated downloads
+	@Benchmark
+	public byte[] generateQrCodePdf() throws IOException
+	{
+		return pdfService.generateQrCodePdf(shortUrl, fullUrl);
+	}
+
+	@Benchmark
+	public void writeQrCodePdf() throws IOException
+	{
+		pdfService.writeQrCodePdf(shortUrl, fullUrl, OutputStream.nullOutputStream());
+	}
+
+	// Renders the QR image every time, as for the first download of a code
+	@Benchmark
+	public byte[] generateQrCodePdfUncached(EmptyCache emptyCache) throws IOException
+	{
+		return pdfService.generateQrCodePdf(shortUrl, fullUrl);
+	}
+
+	@State(Scope.Thread)
+	public static class EmptyCache
+	{
+		@Setup(Level.Invocation)
+		public void clear(PdfBenchmark benchmark)
+		{
+			benchmark.qrImageCache.invalidate(benchmark.fullUrl);
+		}
+	}
+}
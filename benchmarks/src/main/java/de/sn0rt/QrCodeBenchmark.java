@@ -0,0 +1,64 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nayuki.qrcodegen.QrCode;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class QrCodeBenchmark
+{
+	@Param({ "http://localhost:8080/abc12345", "https://sn0rt.example.com/a-considerably-longer-custom-short-code" })
+	String content;
+
+	QRCodeService qrCodeService;
+	QrCode qrCode;
+
+	@Setup
+	public void setup()
+	{
+		qrCodeService = new QRCodeService();
+		qrCodeService.registry = new SimpleMeterRegistry();
+		qrCodeService.init();
+		qrCode = qrCodeService.generateQrCode(content);
+	}
+
+	@Benchmark
+	public QrCode generateQrCode()
+	{
+		return qrCodeService.generateQrCode(content);
+	}
+
+	// Scale and border used for the PDF export
+	@Benchmark
+	public BufferedImage toImage()
+	{
+		return qrCodeService.toImage(qrCode, 8, 4);
+	}
+
+	// Scale and border used on the admin page
+	@Benchmark
+	public String toBase64Image()
+	{
+		return qrCodeService.toBase64Image(qrCode, 4, 2);
+	}
+
+	@Benchmark
+	public byte[] toPng()
+	{
+		return qrCodeService.toPng(qrCode, 4, 2);
+	}
+
+	@Benchmark
+	public String toSvg()
+	{
+		return qrCodeService.toSvg(qrCode, 4, 2);
+	}
+}
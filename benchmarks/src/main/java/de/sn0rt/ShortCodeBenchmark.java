@@ -0,0 +1,57 @@
+package de.sn0rt;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ShortCodeBenchmark
+{
+	@Param({ "1000000" })
+	int existingCodes;
+
+	ShortCodeGenerator generator;
+	BloomFilter existing;
+	long nextId;
+
+	@Setup
+	public void setup()
+	{
+		generator = new ShortCodeGenerator();
+		generator.scramble = true;
+		existing = BloomFilter.create(existingCodes, 0.01);
+		for (int i = 0; i < existingCodes; i++)
+		{
+			existing.put(generator.randomCode());
+		}
+	}
+
+	@Benchmark
+	public String randomCode()
+	{
+		return generator.randomCode();
+	}
+
+	@Benchmark
+	public String sequentialCode()
+	{
+		return generator.encode(nextId++);
+	}
+
+	// Random generation plus the in-memory check that precedes any query
+	@Benchmark
+	public String unseenRandomCode()
+	{
+		String shortCode;
+		do
+		{
+			shortCode = generator.randomCode();
+		} while (existing.mightContain(shortCode));
+		return shortCode;
+	}
+}
@@ -0,0 +1,45 @@
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const MODE = __ENV.MODE || 'default';
+const RATE = parseInt(__ENV.RATE || '500');
+const DURATION = __ENV.DURATION || '60s';
+
+export const options = {
+    scenarios: {
+        api: {
+            executor: 'constant-arrival-rate',
+            rate: RATE,
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 200,
+            maxVUs: 5000,
+        },
+    },
+    summaryTrendStats: ['avg', 'med', 'p(90)', 'p(99)', 'max'],
+};
+
+const JSON_HEADERS = { headers: { 'Content-Type': 'application/json' } };
+
+// Every iteration hits the database at least twice: one create, one stats read
+export default function () {
+    const created = http.post(`${BASE_URL}/shorten`,
+        JSON.stringify({ url: `https://example.com/api/${__VU}/${__ITER}` }), JSON_HEADERS);
+    check(created, { 'created': (r) => r.status === 200 });
+    if (created.status !== 200) {
+        return;
+    }
+
+    const stats = http.get(`${BASE_URL}/stats/${created.json('shortCode')}`);
+    check(stats, { 'stats': (r) => r.status === 200 });
+}
+
+export function handleSummary(data) {
+    return {
+        [`load-tests/results/api-${MODE}.json`]: JSON.stringify(data, null, 2),
+        stdout: `${MODE}: ${data.metrics.http_reqs.values.rate.toFixed(0)} req/s, `
+            + `p99 ${data.metrics.http_req_duration.values['p(99)'].toFixed(2)} ms, `
+            + `failed ${(data.metrics.http_req_failed.values.rate * 100).toFixed(2)}%\n`,
+    };
+}
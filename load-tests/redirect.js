@@ -0,0 +1,52 @@
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const MODE = __ENV.MODE || 'default';
+const CODES = parseInt(__ENV.CODES || '1000');
+const RATE = parseInt(__ENV.RATE || '2000');
+const DURATION = __ENV.DURATION || '60s';
+
+export const options = {
+    scenarios: {
+        redirects: {
+            executor: 'constant-arrival-rate',
+            rate: RATE,
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: 200,
+            maxVUs: 2000,
+        },
+    },
+    summaryTrendStats: ['avg', 'med', 'p(90)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    const codes = [];
+    for (let i = 0; i < CODES; i++) {
+        const res = http.post(`${BASE_URL}/shorten`,
+            JSON.stringify({ url: `https://example.com/load/${i}` }),
+            { headers: { 'Content-Type': 'application/json' } });
+        codes.push(res.json('shortCode'));
+    }
+    return { codes };
+}
+
+// Zipf-like skew: a few codes get most of the traffic
+function pick(codes) {
+    const u = Math.random();
+    return codes[Math.floor(codes.length * u * u * u)];
+}
+
+export default function (data) {
+    const res = http.get(`${BASE_URL}/${pick(data.codes)}`, { redirects: 0 });
+    check(res, { 'is redirect': (r) => r.status === 303 });
+}
+
+export function handleSummary(data) {
+    return {
+        [`load-tests/results/redirect-${MODE}.json`]: JSON.stringify(data, null, 2),
+        stdout: `${MODE}: ${data.metrics.http_reqs.values.rate.toFixed(0)} req/s, `
+            + `p99 ${data.metrics.http_req_duration.values['p(99)'].toFixed(2)} ms\n`,
+    };
+}
@@ -0,0 +1,30 @@
+package de.sn0rt;
+
+import io.smallrye.mutiny.Multi;
+import jakarta.annotation.security.RolesAllowed;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+
+@Path("/admin/events")
+@RolesAllowed("admin")
+public class AdminEvents
+{
+	@Inject
+	LiveClicks liveClicks;
+
+	/**
+	 * Server-sent events with the clicks per short code since the previous
+	 * event, for the admin page to update its counts in place.
+	 */
+	@GET
+	@Produces(MediaType.SERVER_SENT_EVENTS)
+	@RestStreamElementType(MediaType.APPLICATION_JSON)
+	public Multi<LiveClicks.Update> events()
+	{
+		return liveClicks.subscribe();
+	}
+}
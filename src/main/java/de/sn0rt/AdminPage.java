@@ -1,65 +1,134 @@
 package de.sn0rt;
 
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.qute.CheckedTemplate;
 import io.quarkus.qute.TemplateInstance;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import jakarta.annotation.security.RolesAllowed;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
 import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 @Path("/admin")
 @RolesAllowed("admin")
+@RunOnVirtualThread
 public class AdminPage
 {
+	private static final int COUNT_CAP = 1000;
+	private static final CacheControl QR_CACHE_CONTROL = CacheControl.valueOf("private, max-age=86400");
+
 	@CheckedTemplate
 	public static class Templates
 	{
-		public static native TemplateInstance admin(List<UrlWithQrCode> urls, String error, String success);
+		public static native TemplateInstance admin(List<UrlRow> urls, String total, String sort, String q, String nextUrl, String prevUrl, String error, String success);
 	}
 
 	@Inject
 	ShortUrlRepository repository;
 
 	@Inject
-	QRCodeService qrCodeService;
+	ShortUrlDeleter deleter;
+
+	@Inject
+	ShortUrlCache cache;
+
+	@Inject
+	ShortCodeFilter shortCodeFilter;
+
+	@Inject
+	ShortCodeGenerator shortCodeGenerator;
+
+	@Inject
+	ClickCounter clickCounter;
 
 	@Inject
 	PdfService pdfService;
 
-	@ConfigProperty(name = "sn0rt.base-url")
-	String baseUrl;
+	@Inject
+	QrExportService qrExportService;
+
+	@Inject
+	LinkExportService linkExportService;
+
+	@Inject
+	RenderArtifactStore artifactStore;
+
+	@ConfigProperty(name = "sn0rt.admin.page-size", defaultValue = "50")
+	int pageSize;
 
 	@GET
 	@Produces(MediaType.TEXT_HTML)
-	@Transactional
-	public TemplateInstance get(@QueryParam("error") String error, @QueryParam("success") String success)
+	public TemplateInstance get(@QueryParam("error") String error, @QueryParam("success") String success, @QueryParam("sort") String sortParam,
+		@QueryParam("q") String q, @QueryParam("after") String after, @QueryParam("before") String before)
 	{
-		List<ShortUrl> urls = repository.listAll();
-		List<UrlWithQrCode> urlsWithQrCodes = urls.stream()
-			.map(url -> {
-				String fullUrl = baseUrl + "/" + url.shortCode;
-				String qrCodeBase64 = qrCodeService.toBase64Image(qrCodeService.generateQrCode(fullUrl), 4, 2);
-				return new UrlWithQrCode(url, qrCodeBase64);
-			})
-			.collect(Collectors.toList());
-		return Templates.admin(urlsWithQrCodes, error, success);
+		ShortUrlSort sort = ShortUrlSort.fromParam(sortParam);
+		ShortUrlCursor afterCursor = parseCursor(after);
+		ShortUrlCursor beforeCursor = parseCursor(before);
+
+		// Projections only and no transaction: each query borrows a connection
+		// just for itself
+		ShortUrlPage page = repository.findPage(sort, q, afterCursor, beforeCursor, pageSize);
+		// Counting stops past the cap, a full count would scan the table
+		long count = repository.countByPrefix(q, COUNT_CAP + 1);
+		String total = count > COUNT_CAP ? COUNT_CAP + "+" : String.valueOf(count);
+		List<UrlRow> rows = page.items().stream()
+			.map(url -> new UrlRow(url.id(), url.shortCode(), url.originalUrl(), url.createdAt(), url.clickCount() + clickCounter.pending(url.shortCode())))
+			.toList();
+
+		return Templates.admin(rows, total, sort.param(), q,
+			pageUrl(sort, q, "after", page.next()), pageUrl(sort, q, "before", page.previous()), error, success);
 	}
 
-	public record UrlWithQrCode(ShortUrl url, String qrCodeBase64)
+	public record UrlRow(Long id, String shortCode, String originalUrl, LocalDateTime createdAt, long clickCount)
 	{
 	}
 
+	private static ShortUrlCursor parseCursor(String token)
+	{
+		if (token == null || token.isBlank())
+		{
+			return null;
+		}
+		try
+		{
+			return ShortUrlCursor.decode(token);
+		}
+		catch (IllegalArgumentException e)
+		{
+			return null;
+		}
+	}
+
+	private static String pageUrl(ShortUrlSort sort, String q, String direction, ShortUrlCursor cursor)
+	{
+		if (cursor == null)
+		{
+			return null;
+		}
+		String url = "/admin?sort=" + sort.param() + "&" + direction + "=" + cursor.encode();
+		if (q != null && !q.isBlank())
+		{
+			url += "&q=" + URLEncoder.encode(q, StandardCharsets.UTF_8);
+		}
+		return url;
+	}
+
 	@POST
 	@Consumes(MediaType.APPLICATION_FORM_URLENCODED)
 	@Transactional
@@ -74,22 +143,19 @@ public class AdminPage
 		if (customCode != null && !customCode.isBlank())
 		{
 			shortCode = customCode;
-			if (repository.existsByShortCode(shortCode))
+			if (shortCodeFilter.mightContain(shortCode) && repository.existsByShortCode(shortCode))
 			{
 				return Response.seeOther(URI.create("/admin?error=" + URLEncoder.encode("Custom code already exists", StandardCharsets.UTF_8))).build();
 			}
 		}
 		else
 		{
-			shortCode = generateShortCode();
-			while (repository.existsByShortCode(shortCode))
-			{
-				shortCode = generateShortCode();
-			}
+			shortCode = shortCodeGenerator.generate();
 		}
 
 		ShortUrl shortUrl = new ShortUrl(shortCode, url);
 		repository.persist(shortUrl);
+		artifactStore.prerender(shortCode, url);
 
 		return Response.seeOther(URI.create("/admin?success=" + URLEncoder.encode("Short URL created: " + shortCode, StandardCharsets.UTF_8))).build();
 	}
@@ -107,8 +173,11 @@ public class AdminPage
 
 		return repository.findByShortCode(shortCode)
 			.map(shortUrl -> {
+				artifactStore.evictPdf(shortCode, shortUrl.originalUrl);
 				shortUrl.originalUrl = url;
 				repository.persist(shortUrl);
+				cache.invalidate(shortCode);
+				artifactStore.prerender(shortCode, url);
 				return Response.seeOther(URI.create("/admin?success=" + URLEncoder.encode("Short URL updated: " + shortCode, StandardCharsets.UTF_8))).build();
 			})
 			.orElse(Response.seeOther(URI.create("/admin?error=" + URLEncoder.encode("Short URL not found", StandardCharsets.UTF_8))).build());
@@ -121,42 +190,132 @@ public class AdminPage
 	{
 		return repository.findByShortCode(shortCode)
 			.map(shortUrl -> {
-				repository.delete(shortUrl);
+				deleter.delete(shortUrl);
 				return Response.seeOther(URI.create("/admin?success=" + URLEncoder.encode("Short URL deleted: " + shortCode, StandardCharsets.UTF_8))).build();
 			})
 			.orElse(Response.seeOther(URI.create("/admin?error=" + URLEncoder.encode("Short URL not found", StandardCharsets.UTF_8))).build());
 	}
 
+	@GET
+	@Path("/qr/{shortCode}.png")
+	@Produces("image/png")
+	public Response qrCodePng(@PathParam("shortCode") String shortCode, @Context Request request)
+	{
+		return qrCodeImage(shortCode, QrFormat.PNG, request);
+	}
+
+	@GET
+	@Path("/qr/{shortCode}.svg")
+	@Produces("image/svg+xml")
+	public Response qrCodeSvg(@PathParam("shortCode") String shortCode, @Context Request request)
+	{
+		return qrCodeImage(shortCode, QrFormat.SVG, request);
+	}
+
+	private Response qrCodeImage(String shortCode, QrFormat format, Request request)
+	{
+		// Checked before the ETag, so deleted codes stop revalidating
+		if (!shortCodeFilter.mightContain(shortCode) || !repository.existsByShortCode(shortCode))
+		{
+			return Response.status(Response.Status.NOT_FOUND)
+				.entity("Short URL not found")
+				.type(MediaType.TEXT_PLAIN)
+				.build();
+		}
+
+		// Revalidations need no file
+		EntityTag etag = new EntityTag(artifactStore.qrImageKey(shortCode, format));
+		Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+		if (notModified != null)
+		{
+			return notModified.cacheControl(QR_CACHE_CONTROL).build();
+		}
+
+		// A Path entity is sent with sendfile, without copying through the heap
+		return Response.ok(artifactStore.qrImage(shortCode, format))
+			.tag(etag)
+			.cacheControl(QR_CACHE_CONTROL)
+			.build();
+	}
+
+	@GET
+	@Path("/export")
+	@Produces({ "text/csv", ShortUrlResource.NDJSON })
+	public Response exportLinks(@QueryParam("format") @DefaultValue("csv") String format, @QueryParam("stats") boolean withStats)
+	{
+		LinkExportService.Format exportFormat = "ndjson".equalsIgnoreCase(format) ? LinkExportService.Format.NDJSON : LinkExportService.Format.CSV;
+		StreamingOutput export = output -> linkExportService.write(exportFormat, withStats, output);
+		String extension = exportFormat.name().toLowerCase();
+		return Response.ok(export)
+			.type(exportFormat == LinkExportService.Format.CSV ? "text/csv; charset=UTF-8" : ShortUrlResource.NDJSON)
+			.header("Content-Disposition", "attachment; filename=sn0rt-links." + extension)
+			.build();
+	}
+
+	@GET
+	@Path("/qr/export")
+	@Produces("application/zip")
+	public Response exportQrCodes(@QueryParam("code") List<String> shortCodes, @QueryParam("format") @DefaultValue("png") String format)
+	{
+		QrFormat qrFormat;
+		if ("png".equalsIgnoreCase(format))
+		{
+			qrFormat = QrFormat.PNG;
+		}
+		else if ("svg".equalsIgnoreCase(format))
+		{
+			qrFormat = QrFormat.SVG;
+		}
+		else
+		{
+			return Response.status(Response.Status.BAD_REQUEST)
+				.entity("format must be png or svg")
+				.type(MediaType.TEXT_PLAIN)
+				.build();
+		}
+		List<String> selection = shortCodes == null || shortCodes.isEmpty() ? null : shortCodes;
+		StreamingOutput zip = output -> qrExportService.writeZip(selection, qrFormat, output);
+		return Response.ok(zip)
+			.header("Content-Disposition", "attachment; filename=qr-codes.zip")
+			.build();
+	}
+
+	@GET
+	@Path("/qr/labels")
+	@Produces("application/pdf")
+	public Response downloadLabelSheet(@QueryParam("code") List<String> shortCodes, @QueryParam("columns") @DefaultValue("3") int columns,
+		@QueryParam("rows") @DefaultValue("7") int rows, @QueryParam("copies") @DefaultValue("1") int copies)
+	{
+		if (columns < 1 || columns > 10 || rows < 1 || rows > 20 || copies < 1 || copies > 1000)
+		{
+			return Response.status(Response.Status.BAD_REQUEST)
+				.entity("columns must be 1-10, rows 1-20 and copies 1-1000")
+				.type(MediaType.TEXT_PLAIN)
+				.build();
+		}
+
+		List<String> selection = shortCodes == null || shortCodes.isEmpty() ? null : shortCodes;
+		PdfService.LabelSheet sheet = new PdfService.LabelSheet(columns, rows, copies);
+		StreamingOutput pdf = output -> pdfService.writeLabelSheet(selection, sheet, output);
+		return Response.ok(pdf)
+			.header("Content-Disposition", "attachment; filename=qr-labels.pdf")
+			.build();
+	}
+
 	@GET
 	@Path("/qr/{shortCode}/pdf")
 	@Produces("application/pdf")
-	@Transactional
 	public Response downloadQrCodePdf(@PathParam("shortCode") String shortCode)
 	{
-		return repository.findByShortCode(shortCode)
-			.map(shortUrl -> {
-				try
-				{
-					String fullUrl = baseUrl + "/" + shortUrl.shortCode;
-					byte[] pdf = pdfService.generateQrCodePdf(shortUrl, fullUrl);
-					return Response.ok(pdf)
-						.header("Content-Disposition", "attachment; filename=qr-" + shortCode + ".pdf")
-						.build();
-				}
-				catch (Exception e)
-				{
-					return Response.serverError()
-						.entity("Failed to generate PDF: " + e.getMessage())
-						.build();
-				}
-			})
+		// Only the lookup needs a transaction, not rendering or sending the
+		// file
+		Optional<ShortUrl> found = QuarkusTransaction.requiringNew().call(() -> repository.findByShortCode(shortCode));
+		return found
+			.map(shortUrl -> Response.ok(artifactStore.qrPdf(shortUrl))
+				.header("Content-Disposition", "attachment; filename=qr-" + shortCode + ".pdf")
+				.build())
 			.orElse(Response.status(Response.Status.NOT_FOUND)
 				.entity("Short URL not found")
 				.build());
 	}
-
-	private String generateShortCode()
-	{
-		return UUID.randomUUID().toString().substring(0, 8);
-	}
 }
\ No newline at end of file
@@ -0,0 +1,64 @@
+package de.sn0rt;
+
+public final class Base62
+{
+	private static final char[] ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+	private Base62()
+	{
+	}
+
+	public static String encode(long value)
+	{
+		return encode(value, 1);
+	}
+
+	public static String encode(long value, int minLength)
+	{
+		if (value < 0)
+		{
+			throw new IllegalArgumentException("value must not be negative: " + value);
+		}
+
+		char[] buffer = new char[Math.max(11, minLength)];
+		int position = buffer.length;
+		do
+		{
+			buffer[--position] = ALPHABET[(int)(value % 62)];
+			value /= 62;
+		} while (value > 0);
+
+		while (buffer.length - position < minLength)
+		{
+			buffer[--position] = ALPHABET[0];
+		}
+		return new String(buffer, position, buffer.length - position);
+	}
+
+	public static long decode(String value)
+	{
+		long result = 0;
+		for (int i = 0; i < value.length(); i++)
+		{
+			result = Math.multiplyExact(result, 62) + digit(value.charAt(i));
+		}
+		return result;
+	}
+
+	private static int digit(char c)
+	{
+		if (c >= '0' && c <= '9')
+		{
+			return c - '0';
+		}
+		if (c >= 'A' && c <= 'Z')
+		{
+			return c - 'A' + 10;
+		}
+		if (c >= 'a' && c <= 'z')
+		{
+			return c - 'a' + 36;
+		}
+		throw new IllegalArgumentException("Not a Base62 digit: " + c);
+	}
+}
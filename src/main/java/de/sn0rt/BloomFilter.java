@@ -0,0 +1,62 @@
+package de.sn0rt;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class BloomFilter
+{
+	private final AtomicLongArray bits;
+	private final long bitCount;
+	private final int hashCount;
+
+	private BloomFilter(long bitCount, int hashCount)
+	{
+		this.bits = new AtomicLongArray(Math.toIntExact((bitCount + 63) / 64));
+		this.bitCount = bitCount;
+		this.hashCount = hashCount;
+	}
+
+	public static BloomFilter create(long expectedInsertions, double falsePositiveRate)
+	{
+		long expected = Math.max(1, expectedInsertions);
+		long bitCount = Math.max(64, (long)Math.ceil(-expected * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+		int hashCount = Math.max(1, (int)Math.round((double)bitCount / expected * Math.log(2)));
+		return new BloomFilter(bitCount, hashCount);
+	}
+
+	public void put(String value)
+	{
+		long hash1 = Hashing.hash64(value);
+		long hash2 = Hashing.mix64(hash1) | 1;
+		for (int i = 0; i < hashCount; i++)
+		{
+			long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+			long mask = 1L << bit;
+			bits.accumulateAndGet((int)(bit >>> 6), mask, (word, m) -> word | m);
+		}
+	}
+
+	public boolean mightContain(String value)
+	{
+		long hash1 = Hashing.hash64(value);
+		long hash2 = Hashing.mix64(hash1) | 1;
+		for (int i = 0; i < hashCount; i++)
+		{
+			long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+			if ((bits.get((int)(bit >>> 6)) & (1L << bit)) == 0)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public long bitCount()
+	{
+		return bitCount;
+	}
+
+	public int hashCount()
+	{
+		return hashCount;
+	}
+}
@@ -0,0 +1,105 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+@ApplicationScoped
+public class ClickCounter
+{
+	@Inject
+	ShortUrlRepository repository;
+
+	@Inject
+	MeterRegistry registry;
+
+	private final ConcurrentHashMap<String, LongAdder> pending = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	void init()
+	{
+		registry.gaugeMapSize("sn0rt.clicks.pending.codes", List.of(), pending);
+	}
+
+	public void increment(String shortCode)
+	{
+		pending.computeIfAbsent(shortCode, code -> new LongAdder()).increment();
+	}
+
+	public long pending(String shortCode)
+	{
+		LongAdder adder = pending.get(shortCode);
+		return adder == null ? 0L : adder.sum();
+	}
+
+	public void discard(String shortCode)
+	{
+		pending.remove(shortCode);
+	}
+
+	@Scheduled(every = "${sn0rt.clicks.flush-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+	void scheduledFlush()
+	{
+		flush();
+	}
+
+	void onShutdown(@Observes ShutdownEvent event)
+	{
+		flush();
+	}
+
+	/**
+	 * Writes the pending clicks to the database. They stay pending until the
+	 * transaction has committed, so persisted plus pending clicks never miss
+	 * the clicks being written; on failure they are simply kept for the next
+	 * flush.
+	 */
+	public synchronized void flush()
+	{
+		// Sorted so that concurrent flushers lock rows in the same order
+		Map<String, Long> deltas = new TreeMap<>();
+		Map<String, LongAdder> adders = new HashMap<>();
+		pending.forEach((shortCode, adder) -> {
+			long delta = adder.sum();
+			if (delta > 0)
+			{
+				deltas.put(shortCode, delta);
+				adders.put(shortCode, adder);
+			}
+		});
+
+		if (deltas.isEmpty())
+		{
+			return;
+		}
+
+		Timer.Sample sample = Timer.start(registry);
+		try
+		{
+			QuarkusTransaction.requiringNew().run(() -> repository.addClickCounts(deltas));
+		}
+		catch (RuntimeException e)
+		{
+			Log.warnf(e, "Failed to flush click counts for %d short URLs, retrying on next flush", deltas.size());
+			return;
+		}
+		// Clicks counted since the snapshot remain pending
+		deltas.forEach((shortCode, delta) -> adders.get(shortCode).add(-delta));
+		sample.stop(registry.timer("sn0rt.db.query", "query", "addClickCounts", "client", "jdbc"));
+		registry.summary("sn0rt.clicks.flush.codes").record(deltas.size());
+	}
+}
@@ -0,0 +1,73 @@
+package de.sn0rt;
+
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * One redirect as recorded in {@code click_event}. The client is only kept as
+ * its network (IPv4 /24, IPv6 /48), never its full address. {@code weight} is
+ * the number of clicks this event stands for when the pipeline samples.
+ */
+public record ClickEvent(String shortCode, Instant clickedAt, String referrer, String userAgent, String clientNetwork, String language, int weight)
+{
+	static final int MAX_REFERRER = 2048;
+	static final int MAX_USER_AGENT = 512;
+	static final int MAX_LANGUAGE = 35;
+
+	public static ClickEvent of(String shortCode, String referrer, String userAgent, String clientAddress, String acceptLanguage)
+	{
+		return new ClickEvent(shortCode, Instant.now(), truncate(referrer, MAX_REFERRER), truncate(userAgent, MAX_USER_AGENT),
+			network(clientAddress), language(acceptLanguage), 1);
+	}
+
+	public ClickEvent withWeight(int weight)
+	{
+		return new ClickEvent(shortCode, clickedAt, referrer, userAgent, clientNetwork, language, weight);
+	}
+
+	static String network(String address)
+	{
+		if (address == null || address.isBlank())
+		{
+			return null;
+		}
+		if (address.indexOf(':') < 0)
+		{
+			int last = address.lastIndexOf('.');
+			return last < 0 ? null : address.substring(0, last) + ".0/24";
+		}
+
+		// First three groups, fewer if "::" starts earlier
+		String[] groups = address.split("%", 2)[0].split(":", -1);
+		StringBuilder network = new StringBuilder();
+		for (int i = 0; i < 3 && i < groups.length && !groups[i].isEmpty(); i++)
+		{
+			network.append(groups[i]).append(':');
+		}
+		return network.isEmpty() ? "::/48" : network.append(":/48").toString();
+	}
+
+	// Primary language tag of the most preferred Accept-Language entry
+	static String language(String acceptLanguage)
+	{
+		if (acceptLanguage == null)
+		{
+			return null;
+		}
+		String first = acceptLanguage.split(",", 2)[0].split(";", 2)[0].trim();
+		if (first.isEmpty() || first.equals("*"))
+		{
+			return null;
+		}
+		return truncate(first.toLowerCase(Locale.ROOT), MAX_LANGUAGE);
+	}
+
+	private static String truncate(String value, int length)
+	{
+		if (value == null || value.isEmpty())
+		{
+			return null;
+		}
+		return value.length() <= length ? value : value.substring(0, length);
+	}
+}
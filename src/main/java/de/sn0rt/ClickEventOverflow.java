@@ -0,0 +1,11 @@
+package de.sn0rt;
+
+/**
+ * What the click event pipeline does when the writer falls behind: DROP keeps
+ * every event until the buffer is full and then drops new ones, SAMPLE starts
+ * keeping one in N (recorded with weight N) once the buffer is half full.
+ */
+public enum ClickEventOverflow
+{
+	DROP, SAMPLE
+}
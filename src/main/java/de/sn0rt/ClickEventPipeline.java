@@ -0,0 +1,141 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Collects click events off the redirect path. Redirects only publish into a
+ * lock-free ring buffer, which never blocks: when the writer falls behind,
+ * events are sampled or dropped according to
+ * {@code sn0rt.clicks.events.overflow}. A scheduled writer drains the buffer
+ * and copies the events into {@code click_event} in batches.
+ */
+@ApplicationScoped
+public class ClickEventPipeline
+{
+	@ConfigProperty(name = "sn0rt.clicks.events.enabled", defaultValue = "true")
+	boolean enabled;
+
+	@ConfigProperty(name = "sn0rt.clicks.events.capacity", defaultValue = "65536")
+	int capacity;
+
+	@ConfigProperty(name = "sn0rt.clicks.events.batch-size", defaultValue = "5000")
+	int batchSize;
+
+	@ConfigProperty(name = "sn0rt.clicks.events.overflow", defaultValue = "drop")
+	ClickEventOverflow overflow;
+
+	@ConfigProperty(name = "sn0rt.clicks.events.sample-rate", defaultValue = "10")
+	int sampleRate;
+
+	@Inject
+	ClickEventRepository repository;
+
+	@Inject
+	MeterRegistry registry;
+
+	RingBuffer<ClickEvent> buffer;
+	Counter published;
+	Counter droppedFull;
+	Counter droppedSampled;
+	Counter droppedFailed;
+	Timer writeTimer;
+	DistributionSummary batches;
+
+	@PostConstruct
+	void init()
+	{
+		buffer = new RingBuffer<>(capacity);
+		registry.gauge("sn0rt.clicks.events.queue", buffer, RingBuffer::size);
+		published = registry.counter("sn0rt.clicks.events.published");
+		droppedFull = registry.counter("sn0rt.clicks.events.dropped", "reason", "full");
+		droppedSampled = registry.counter("sn0rt.clicks.events.dropped", "reason", "sampled");
+		droppedFailed = registry.counter("sn0rt.clicks.events.dropped", "reason", "failed");
+		writeTimer = registry.timer("sn0rt.db.query", "query", "copyClickEvents", "client", "jdbc");
+		batches = registry.summary("sn0rt.clicks.events.batch");
+	}
+
+	public void publish(ClickEvent event)
+	{
+		if (!enabled)
+		{
+			return;
+		}
+
+		ClickEvent accepted = event;
+		if (overflow == ClickEventOverflow.SAMPLE && buffer.size() >= buffer.capacity() / 2)
+		{
+			if (ThreadLocalRandom.current().nextInt(sampleRate) != 0)
+			{
+				droppedSampled.increment();
+				return;
+			}
+			accepted = event.withWeight(sampleRate);
+		}
+
+		if (buffer.offer(accepted))
+		{
+			published.increment();
+		}
+		else
+		{
+			droppedFull.increment();
+		}
+	}
+
+	@Scheduled(every = "${sn0rt.clicks.events.flush-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+	void scheduledFlush()
+	{
+		flush();
+	}
+
+	void onShutdown(@Observes ShutdownEvent event)
+	{
+		flush();
+	}
+
+	public synchronized void flush()
+	{
+		// Only what is queued now, so a steady stream cannot keep one flush
+		// running forever
+		int remaining = buffer.size();
+		List<ClickEvent> batch = new ArrayList<>(Math.min(remaining, batchSize));
+		while (remaining > 0 && buffer.drainTo(batch, Math.min(remaining, batchSize)) > 0)
+		{
+			remaining -= batch.size();
+			write(batch);
+			batch.clear();
+		}
+	}
+
+	private void write(List<ClickEvent> batch)
+	{
+		Timer.Sample sample = Timer.start(registry);
+		try
+		{
+			QuarkusTransaction.requiringNew().run(() -> repository.copy(batch));
+			sample.stop(writeTimer);
+			batches.record(batch.size());
+		}
+		catch (RuntimeException e)
+		{
+			Log.warnf(e, "Failed to write %d click events, dropping them", batch.size());
+			droppedFailed.increment(batch.size());
+		}
+	}
+}
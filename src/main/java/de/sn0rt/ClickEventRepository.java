@@ -0,0 +1,87 @@
+package de.sn0rt;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+@ApplicationScoped
+public class ClickEventRepository
+{
+	private static final String COPY = "copy click_event (shortCode, clickedAt, referrer, userAgent, clientNetwork, language, weight) from stdin with (format csv)";
+
+	@Inject
+	EntityManager entityManager;
+
+	/**
+	 * Writes the events with COPY, which streams all rows in one round trip and
+	 * skips per-statement parsing and planning.
+	 */
+	public void copy(List<ClickEvent> events)
+	{
+		StringBuilder csv = new StringBuilder(events.size() * 256);
+		for (ClickEvent event : events)
+		{
+			appendField(csv, event.shortCode()).append(',');
+			csv.append(event.clickedAt()).append(',');
+			appendField(csv, event.referrer()).append(',');
+			appendField(csv, event.userAgent()).append(',');
+			appendField(csv, event.clientNetwork()).append(',');
+			appendField(csv, event.language()).append(',');
+			csv.append(event.weight()).append('\n');
+		}
+		byte[] data = csv.toString().getBytes(StandardCharsets.UTF_8);
+
+		entityManager.unwrap(Session.class).doWork(connection -> {
+			try
+			{
+				connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY, new ByteArrayInputStream(data));
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	public long countByShortCode(String shortCode)
+	{
+		return ((Number)entityManager.createNativeQuery("select coalesce(sum(weight), 0) from click_event where shortCode = ?1")
+			.setParameter(1, shortCode)
+			.getSingleResult()).longValue();
+	}
+
+	public void deleteByShortCode(String shortCode)
+	{
+		entityManager.createNativeQuery("delete from click_event where shortCode = ?1")
+			.setParameter(1, shortCode)
+			.executeUpdate();
+	}
+
+	// CSV quoting: an unquoted empty field is NULL, quotes inside are doubled
+	private static StringBuilder appendField(StringBuilder csv, String value)
+	{
+		if (value == null)
+		{
+			return csv;
+		}
+		csv.append('"');
+		for (int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			if (c == '"')
+			{
+				csv.append('"');
+			}
+			csv.append(c);
+		}
+		return csv.append('"');
+	}
+}
@@ -0,0 +1,121 @@
+package de.sn0rt;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@ApplicationScoped
+public class ClickRollupRepository
+{
+	@Inject
+	EntityManager entityManager;
+
+	/**
+	 * Adds per-minute click deltas to all rollup tables, one upsert per table.
+	 */
+	public void addClicks(Map<ClickRollups.Bucket, Long> minuteDeltas)
+	{
+		for (StatsGranularity granularity : StatsGranularity.values())
+		{
+			long bucketMinutes = granularity.size().toMinutes();
+			Map<ClickRollups.Bucket, Long> deltas = new TreeMap<>();
+			minuteDeltas.forEach((bucket, delta) -> deltas.merge(
+				new ClickRollups.Bucket(bucket.shortCode(), Math.floorDiv(bucket.minute(), bucketMinutes) * bucketMinutes), delta, Long::sum));
+			upsert(granularity, deltas);
+		}
+	}
+
+	private void upsert(StatsGranularity granularity, Map<ClickRollups.Bucket, Long> deltas)
+	{
+		String[] shortCodes = new String[deltas.size()];
+		Long[] buckets = new Long[deltas.size()];
+		Long[] clicks = new Long[deltas.size()];
+		int i = 0;
+		for (Map.Entry<ClickRollups.Bucket, Long> entry : deltas.entrySet())
+		{
+			shortCodes[i] = entry.getKey().shortCode();
+			buckets[i] = entry.getKey().minute() * 60;
+			clicks[i] = entry.getValue();
+			i++;
+		}
+
+		entityManager.unwrap(Session.class).doWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement("""
+				insert into %1$s (shortCode, bucket, clicks)
+				select d.shortCode, to_timestamp(d.bucket), d.clicks
+				from unnest(?::varchar[], ?::bigint[], ?::bigint[]) as d(shortCode, bucket, clicks)
+				on conflict (shortCode, bucket) do update set clicks = %1$s.clicks + excluded.clicks
+				""".formatted(granularity.table)))
+			{
+				statement.setArray(1, connection.createArrayOf("varchar", shortCodes));
+				statement.setArray(2, connection.createArrayOf("bigint", buckets));
+				statement.setArray(3, connection.createArrayOf("bigint", clicks));
+				statement.executeUpdate();
+			}
+		});
+	}
+
+	/**
+	 * Returns the click count of every bucket in {@code [from, to)}, including
+	 * empty ones, reading at most one row per bucket.
+	 */
+	public List<StatsPoint> findSeries(String shortCode, StatsGranularity granularity, Instant from, Instant to)
+	{
+		Map<Instant, Long> clicks = new TreeMap<>();
+		entityManager.unwrap(Session.class).doWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(
+				"select bucket, clicks from " + granularity.table + " where shortCode = ? and bucket >= ? and bucket < ?"))
+			{
+				statement.setString(1, shortCode);
+				statement.setObject(2, granularity.truncate(from).atOffset(ZoneOffset.UTC));
+				statement.setObject(3, to.atOffset(ZoneOffset.UTC));
+				try (ResultSet resultSet = statement.executeQuery())
+				{
+					while (resultSet.next())
+					{
+						clicks.put(resultSet.getObject(1, OffsetDateTime.class).toInstant(), resultSet.getLong(2));
+					}
+				}
+			}
+		});
+
+		List<StatsPoint> series = new ArrayList<>();
+		for (Instant bucket = granularity.truncate(from); bucket.isBefore(to); bucket = bucket.plus(granularity.size()))
+		{
+			series.add(new StatsPoint(bucket, clicks.getOrDefault(bucket, 0L)));
+		}
+		return series;
+	}
+
+	public void deleteBefore(StatsGranularity granularity, Instant before)
+	{
+		entityManager.createNativeQuery("delete from " + granularity.table + " where bucket < ?1")
+			.setParameter(1, before.atOffset(ZoneOffset.UTC))
+			.executeUpdate();
+	}
+
+	public void deleteByShortCode(String shortCode)
+	{
+		for (StatsGranularity granularity : StatsGranularity.values())
+		{
+			entityManager.createNativeQuery("delete from " + granularity.table + " where shortCode = ?1")
+				.setParameter(1, shortCode)
+				.executeUpdate();
+		}
+	}
+
+	public record StatsPoint(Instant time, long clicks)
+	{
+	}
+}
@@ -0,0 +1,132 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-minute click counts, aggregated in memory and added to the minute, hour
+ * and day rollup tables on every flush. A stats query then reads one row per
+ * bucket, no matter how many clicks a link gets.
+ */
+@ApplicationScoped
+public class ClickRollups
+{
+	@ConfigProperty(name = "sn0rt.stats.minute-retention", defaultValue = "7d")
+	Duration minuteRetention;
+
+	@ConfigProperty(name = "sn0rt.stats.hour-retention", defaultValue = "90d")
+	Duration hourRetention;
+
+	@Inject
+	ClickRollupRepository repository;
+
+	@Inject
+	MeterRegistry registry;
+
+	private final ConcurrentHashMap<Bucket, LongAdder> pending = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	void init()
+	{
+		registry.gaugeMapSize("sn0rt.stats.pending.buckets", List.of(), pending);
+	}
+
+	public void increment(String shortCode)
+	{
+		pending.computeIfAbsent(new Bucket(shortCode, System.currentTimeMillis() / 60_000), bucket -> new LongAdder()).increment();
+	}
+
+	public void discard(String shortCode)
+	{
+		pending.keySet().removeIf(bucket -> bucket.shortCode().equals(shortCode));
+	}
+
+	@Scheduled(every = "${sn0rt.clicks.flush-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+	void scheduledFlush()
+	{
+		flush();
+	}
+
+	void onShutdown(@Observes ShutdownEvent event)
+	{
+		flush();
+	}
+
+	public synchronized void flush()
+	{
+		// Buckets of past minutes are removed once counted. A redirect still
+		// holding the adder of the previous minute may add to it late, so
+		// only buckets older than that are safe to remove.
+		long current = System.currentTimeMillis() / 60_000;
+		Map<Bucket, Long> deltas = new TreeMap<>();
+		pending.forEach((bucket, adder) -> {
+			long delta;
+			if (bucket.minute() < current - 1 && pending.remove(bucket, adder))
+			{
+				delta = adder.sum();
+			}
+			else
+			{
+				delta = adder.sumThenReset();
+			}
+			if (delta > 0)
+			{
+				deltas.put(bucket, delta);
+			}
+		});
+
+		if (deltas.isEmpty())
+		{
+			return;
+		}
+
+		Timer.Sample sample = Timer.start(registry);
+		try
+		{
+			QuarkusTransaction.requiringNew().run(() -> repository.addClicks(deltas));
+			sample.stop(registry.timer("sn0rt.db.query", "query", "addRollupClicks", "client", "jdbc"));
+		}
+		catch (RuntimeException e)
+		{
+			Log.warnf(e, "Failed to flush click rollups for %d buckets, retrying on next flush", deltas.size());
+			deltas.forEach((bucket, delta) -> pending.computeIfAbsent(bucket, b -> new LongAdder()).add(delta));
+		}
+	}
+
+	@Scheduled(every = "1h", delayed = "1m")
+	void purge()
+	{
+		Instant now = Instant.now();
+		QuarkusTransaction.requiringNew().run(() -> {
+			repository.deleteBefore(StatsGranularity.MINUTE, now.minus(minuteRetention));
+			repository.deleteBefore(StatsGranularity.HOUR, now.minus(hourRetention));
+		});
+	}
+
+	record Bucket(String shortCode, long minute) implements Comparable<Bucket>
+	{
+		@Override
+		public int compareTo(Bucket other)
+		{
+			int compare = shortCode.compareTo(other.shortCode);
+			return compare != 0 ? compare : Long.compare(minute, other.minute);
+		}
+	}
+}
@@ -2,16 +2,25 @@ package de.sn0rt;
 
 import io.quarkus.qute.CheckedTemplate;
 import io.quarkus.qute.TemplateInstance;
+import io.smallrye.mutiny.Uni;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.virtual.threads.VirtualThreads;
+import io.vertx.core.http.HttpServerRequest;
 import jakarta.inject.Inject;
-import jakarta.transaction.Transactional;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import java.net.URI;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 
 @Path("/")
 public class LandingPage
@@ -19,6 +28,43 @@ public class LandingPage
 	@Inject
 	ShortUrlRepository repository;
 
+	@Inject
+	ShortUrlReactiveRepository reactiveRepository;
+
+	@Inject
+	ShortUrlCache cache;
+
+	@Inject
+	ShortCodeFilter shortCodeFilter;
+
+	@Inject
+	ClickCounter clickCounter;
+
+	@Inject
+	ClickEventPipeline clickEvents;
+
+	@Inject
+	ClickRollups clickRollups;
+
+	@Inject
+	TopLinks topLinks;
+
+	@Inject
+	UniqueVisitors uniqueVisitors;
+
+	@Inject
+	LiveClicks liveClicks;
+
+	@ConfigProperty(name = "sn0rt.redirect.mode", defaultValue = "blocking")
+	RedirectMode redirectMode;
+
+	@Inject
+	@VirtualThreads
+	ExecutorService blockingExecutor;
+
+	@Inject
+	MeterRegistry registry;
+
 	@CheckedTemplate
 	public static class Templates
 	{
@@ -34,22 +80,78 @@ public class LandingPage
 
 	@GET
 	@Path("/{shortCode}")
-	@Transactional
-	public Response redirect(@PathParam("shortCode") String shortCode)
+	public Uni<Response> redirect(@PathParam("shortCode") String shortCode, @HeaderParam("Referer") String referrer,
+		@HeaderParam("User-Agent") String userAgent, @HeaderParam("Accept-Language") String acceptLanguage, @Context HttpServerRequest request)
 	{
-		return repository.findByShortCode(shortCode)
-			.map(shortUrl -> {
-				shortUrl.clickCount++;
-				repository.persist(shortUrl);
-				return Response.seeOther(URI.create(shortUrl.originalUrl)).build();
+		Optional<String> cached = cache.getTarget(shortCode);
+		Uni<Optional<String>> target;
+		if (cached.isPresent())
+		{
+			countRedirect("hit");
+			target = Uni.createFrom().item(cached);
+		}
+		else if (!shortCodeFilter.mightContain(shortCode))
+		{
+			countRedirect("filtered");
+			target = Uni.createFrom().item(Optional.empty());
+		}
+		else
+		{
+			target = loadTarget(shortCode).invoke(loaded -> {
+				countRedirect(loaded.isPresent() ? "miss" : "not_found");
+				loaded.ifPresent(originalUrl -> cache.putTarget(shortCode, originalUrl));
+			});
+		}
+
+		return target.map(loaded -> loaded
+			.map(originalUrl -> {
+				clickCounter.increment(shortCode);
+				clickRollups.increment(shortCode);
+				topLinks.increment(shortCode);
+				liveClicks.increment(shortCode);
+				String clientAddress = clientAddress(request);
+				uniqueVisitors.add(shortCode, clientAddress, userAgent);
+				clickEvents.publish(ClickEvent.of(shortCode, referrer, userAgent, clientAddress, acceptLanguage));
+				return Response.seeOther(URI.create(originalUrl)).build();
 			})
 			.orElseGet(() -> Response.status(Response.Status.NOT_FOUND)
 				.type(MediaType.TEXT_HTML)
 				.entity(generateNotFoundHtml(shortCode))
-				.build());
+				.build()));
+	}
+
+	// Redirects run on the event loop; only a cache miss needs the database,
+	// either through the reactive client or offloaded to a virtual thread
+	// (or a worker thread when virtual threads are disabled).
+	private Uni<Optional<String>> loadTarget(String shortCode)
+	{
+		Timer.Sample sample = Timer.start(registry);
+		Uni<Optional<String>> lookup;
+		if (redirectMode == RedirectMode.REACTIVE)
+		{
+			lookup = reactiveRepository.findTargetByShortCode(shortCode);
+		}
+		else
+		{
+			lookup = Uni.createFrom().item(() -> repository.findTargetByShortCode(shortCode))
+				.runSubscriptionOn(blockingExecutor);
+		}
+		return lookup.eventually(() -> sample.stop(registry.timer("sn0rt.db.query", "query", "findTargetByShortCode", "client", redirectMode == RedirectMode.REACTIVE ? "reactive" : "jdbc")));
+	}
+
+	private static String clientAddress(HttpServerRequest request)
+	{
+		return request.remoteAddress() == null ? null : request.remoteAddress().host();
+	}
+
+	// hit: served from cache, miss: loaded from the database, not_found: not in
+	// the database, filtered: rejected by the Bloom filter without a query
+	private void countRedirect(String result)
+	{
+		registry.counter("sn0rt.redirects", "result", result).increment();
 	}
 
-	private String generateNotFoundHtml(String shortCode)
+	String generateNotFoundHtml(String shortCode)
 	{
 		return """
 			<!DOCTYPE html>
@@ -0,0 +1,214 @@
+package de.sn0rt;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Writes every short URL as CSV or NDJSON. Rows come straight from JDBC through
+ * a server-side cursor, {@link #FETCH_SIZE} at a time, bypassing the
+ * persistence context, and are written as they arrive, so memory use is the
+ * same for ten rows or fifty million.
+ */
+@ApplicationScoped
+public class LinkExportService
+{
+	public enum Format
+	{
+		CSV, NDJSON
+	}
+
+	private static final int FETCH_SIZE = 1000;
+
+	private static final String QUERY = "select s.shortCode, s.originalUrl, s.createdAt, s.clickCount from short_url s order by s.id";
+
+	// Rollups and lifetime visitor sketch per row, both primary key lookups
+	private static final String QUERY_WITH_STATS = """
+		select s.shortCode, s.originalUrl, s.createdAt, s.clickCount, r.clicks7, r.clicks30, v.sketch
+		from short_url s
+		left join lateral (
+			select coalesce(sum(d.clicks) filter (where d.bucket >= ?), 0) as clicks7, coalesce(sum(d.clicks), 0) as clicks30
+			from click_rollup_day d
+			where d.shortCode = s.shortCode and d.bucket >= ?
+		) r on true
+		left join visitor_sketch v on v.shortCode = s.shortCode
+		order by s.id
+		""";
+
+	@Inject
+	DataSource dataSource;
+
+	@Inject
+	ClickCounter clickCounter;
+
+	@Inject
+	ObjectMapper objectMapper;
+
+	@Inject
+	MeterRegistry registry;
+
+	public void write(Format format, boolean withStats, OutputStream output) throws IOException
+	{
+		Timer.Sample sample = Timer.start(registry);
+		try (Connection connection = dataSource.getConnection())
+		{
+			// Postgres only uses a cursor for the fetch size inside a
+			// transaction
+			connection.setAutoCommit(false);
+			connection.setReadOnly(true);
+			try (PreparedStatement statement = connection.prepareStatement(withStats ? QUERY_WITH_STATS : QUERY, ResultSet.TYPE_FORWARD_ONLY,
+				ResultSet.CONCUR_READ_ONLY))
+			{
+				statement.setFetchSize(FETCH_SIZE);
+				if (withStats)
+				{
+					LocalDate today = LocalDate.now(ZoneOffset.UTC);
+					statement.setObject(1, today.minusDays(6).atStartOfDay().atOffset(ZoneOffset.UTC));
+					statement.setObject(2, today.minusDays(29).atStartOfDay().atOffset(ZoneOffset.UTC));
+				}
+				try (ResultSet resultSet = statement.executeQuery())
+				{
+					RowWriter writer = format == Format.CSV ? new CsvWriter(output, withStats) : new NdjsonWriter(output, withStats);
+					while (resultSet.next())
+					{
+						writer.write(row(resultSet, withStats));
+					}
+					writer.finish();
+				}
+			}
+			finally
+			{
+				connection.rollback();
+			}
+		}
+		catch (SQLException e)
+		{
+			throw new IOException("Failed to export short URLs", e);
+		}
+		sample.stop(registry.timer("sn0rt.links.export", "format", format.name().toLowerCase()));
+	}
+
+	private Row row(ResultSet resultSet, boolean withStats) throws SQLException
+	{
+		String shortCode = resultSet.getString(1);
+		long clickCount = resultSet.getLong(4) + clickCounter.pending(shortCode);
+		if (!withStats)
+		{
+			return new Row(shortCode, resultSet.getString(2), resultSet.getObject(3, LocalDateTime.class), clickCount, 0, 0, 0);
+		}
+		byte[] sketch = resultSet.getBytes(7);
+		return new Row(shortCode, resultSet.getString(2), resultSet.getObject(3, LocalDateTime.class), clickCount, resultSet.getLong(5),
+			resultSet.getLong(6), sketch == null ? 0 : HyperLogLog.fromBytes(sketch).estimate());
+	}
+
+	private record Row(String shortCode, String originalUrl, LocalDateTime createdAt, long clickCount, long clicksLast7Days,
+		long clicksLast30Days, long uniqueVisitors)
+	{
+	}
+
+	private interface RowWriter
+	{
+		void write(Row row) throws IOException;
+
+		void finish() throws IOException;
+	}
+
+	private static final class CsvWriter implements RowWriter
+	{
+		private final Writer writer;
+		private final boolean withStats;
+
+		CsvWriter(OutputStream output, boolean withStats) throws IOException
+		{
+			this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+			this.withStats = withStats;
+			writer.write(withStats
+				? "shortCode,originalUrl,createdAt,clickCount,clicksLast7Days,clicksLast30Days,uniqueVisitors\n"
+				: "shortCode,originalUrl,createdAt,clickCount\n");
+		}
+
+		@Override
+		public void write(Row row) throws IOException
+		{
+			writer.write(QrExportService.csv(row.shortCode()));
+			writer.write(',');
+			writer.write(QrExportService.csv(row.originalUrl()));
+			writer.write(',');
+			writer.write(row.createdAt().toString());
+			writer.write(',');
+			writer.write(Long.toString(row.clickCount()));
+			if (withStats)
+			{
+				writer.write(',');
+				writer.write(Long.toString(row.clicksLast7Days()));
+				writer.write(',');
+				writer.write(Long.toString(row.clicksLast30Days()));
+				writer.write(',');
+				writer.write(Long.toString(row.uniqueVisitors()));
+			}
+			writer.write('\n');
+		}
+
+		@Override
+		public void finish() throws IOException
+		{
+			writer.flush();
+		}
+	}
+
+	private final class NdjsonWriter implements RowWriter
+	{
+		private final JsonGenerator generator;
+		private final boolean withStats;
+
+		NdjsonWriter(OutputStream output, boolean withStats) throws IOException
+		{
+			this.generator = objectMapper.getFactory().createGenerator(output).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			// Every object ends its own line instead of being space separated
+			generator.setRootValueSeparator(null);
+			this.withStats = withStats;
+		}
+
+		@Override
+		public void write(Row row) throws IOException
+		{
+			generator.writeStartObject();
+			generator.writeStringField("shortCode", row.shortCode());
+			generator.writeStringField("originalUrl", row.originalUrl());
+			generator.writeStringField("createdAt", row.createdAt().toString());
+			generator.writeNumberField("clickCount", row.clickCount());
+			if (withStats)
+			{
+				generator.writeNumberField("clicksLast7Days", row.clicksLast7Days());
+				generator.writeNumberField("clicksLast30Days", row.clicksLast30Days());
+				generator.writeNumberField("uniqueVisitors", row.uniqueVisitors());
+			}
+			generator.writeEndObject();
+			generator.writeRaw('\n');
+		}
+
+		@Override
+		public void finish() throws IOException
+		{
+			generator.close();
+		}
+	}
+}
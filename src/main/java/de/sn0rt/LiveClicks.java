@@ -0,0 +1,128 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.subscription.MultiEmitter;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live click feed for the admin page. Redirects add to per-code counters only
+ * while someone is subscribed; every {@code sn0rt.admin.events.interval} the
+ * counts since the last tick go to all subscribers as one update. A subscriber
+ * that has not taken the previous update yet gets the counts merged into it
+ * instead, so slow clients skip intermediate updates without losing clicks.
+ * Past {@code sn0rt.admin.events.max-codes} unsent codes a subscriber is told
+ * to resync instead.
+ */
+@ApplicationScoped
+public class LiveClicks
+{
+	@ConfigProperty(name = "sn0rt.admin.events.max-codes", defaultValue = "10000")
+	int maxCodes;
+
+	@Inject
+	MeterRegistry registry;
+
+	private final ConcurrentHashMap<String, LongAdder> pending = new ConcurrentHashMap<>();
+	private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+	@PostConstruct
+	void init()
+	{
+		registry.gaugeCollectionSize("sn0rt.admin.events.subscribers", List.of(), subscribers);
+	}
+
+	public void increment(String shortCode)
+	{
+		if (!subscribers.isEmpty())
+		{
+			pending.computeIfAbsent(shortCode, code -> new LongAdder()).increment();
+		}
+	}
+
+	public Multi<Update> subscribe()
+	{
+		return Multi.createFrom().emitter(emitter -> {
+			Subscriber subscriber = new Subscriber(emitter);
+			subscribers.add(subscriber);
+			emitter.onTermination(() -> subscribers.remove(subscriber));
+		});
+	}
+
+	@Scheduled(every = "${sn0rt.admin.events.interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+	void tick()
+	{
+		Map<String, Long> deltas = new HashMap<>();
+		pending.forEach((shortCode, adder) -> {
+			long delta = adder.sumThenReset();
+			if (delta > 0)
+			{
+				deltas.put(shortCode, delta);
+			}
+			else
+			{
+				pending.remove(shortCode, adder);
+			}
+		});
+
+		for (Subscriber subscriber : subscribers)
+		{
+			subscriber.offer(deltas);
+		}
+	}
+
+	/**
+	 * @param clicks
+	 *            clicks per short code since the previous update
+	 * @param resync
+	 *            updates were dropped, counts must be reloaded
+	 */
+	public record Update(Map<String, Long> clicks, boolean resync)
+	{
+	}
+
+	private final class Subscriber
+	{
+		private final MultiEmitter<? super Update> emitter;
+		private Map<String, Long> unsent = new HashMap<>();
+		private boolean resync;
+
+		Subscriber(MultiEmitter<? super Update> emitter)
+		{
+			this.emitter = emitter;
+		}
+
+		// Only called by the ticker, one tick at a time
+		void offer(Map<String, Long> deltas)
+		{
+			if (!resync)
+			{
+				deltas.forEach((shortCode, delta) -> unsent.merge(shortCode, delta, Long::sum));
+				if (unsent.size() > maxCodes)
+				{
+					unsent = new HashMap<>();
+					resync = true;
+				}
+			}
+
+			// No demand means the client has not consumed the last update yet
+			if (emitter.requested() > 0 && (resync || !unsent.isEmpty()))
+			{
+				emitter.emit(new Update(unsent, resync));
+				unsent = new HashMap<>();
+				resync = false;
+			}
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import jakarta.enterprise.inject.Produces;
+import jakarta.inject.Singleton;
+
+public class MetricsConfiguration
+{
+	// Publish histogram buckets for request latencies and our own timers so
+	// percentiles can be aggregated across instances in Prometheus.
+	@Produces
+	@Singleton
+	public MeterFilter enableHistograms()
+	{
+		return new MeterFilter()
+		{
+			@Override
+			public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config)
+			{
+				if (id.getName().startsWith("http.server.requests") || id.getName().startsWith("sn0rt."))
+				{
+					return DistributionStatisticConfig.builder()
+						.percentilesHistogram(true)
+						.build()
+						.merge(config);
+				}
+				return config;
+			}
+		};
+	}
+}
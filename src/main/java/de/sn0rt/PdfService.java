@@ -1,82 +1,370 @@
 package de.sn0rt;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
-import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 
-import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
 
 @ApplicationScoped
 public class PdfService
 {
+	// Layout of the single QR code page, in points from the bottom left
+	private static final float MARGIN = 50;
+	private static final float TITLE_Y = 750;
+	private static final float SHORT_CODE_Y = 720;
+	private static final float URL_Y = 695;
+	private static final float TARGET_Y = 675;
+	private static final float QR_X = 150;
+	private static final float QR_Y = 350;
+	private static final float QR_SIZE = 300;
+	private static final int QR_SCALE = 8;
+	private static final int QR_BORDER = 4;
+
+	// Layout of label sheets
+	private static final float SHEET_MARGIN = 36;
+	private static final float LABEL_PADDING = 6;
+	private static final float LABEL_CODE_SIZE = 9;
+	private static final float LABEL_URL_SIZE = 6;
+	private static final int LABEL_QR_SCALE = 4;
+	private static final int LABEL_PAGE_SIZE = 500;
+
+	@Inject
+	QrImageCache qrImageCache;
+
 	@Inject
 	QRCodeService qrCodeService;
 
+	@Inject
+	ShortUrlRepository repository;
+
+	@Inject
+	MeterRegistry registry;
+
+	@ConfigProperty(name = "sn0rt.base-url")
+	String baseUrl;
+
+	Timer renderTimer;
+	DistributionSummary pdfBytes;
+	Timer labelsTimer;
+	DistributionSummary labelsBytes;
+
+	@PostConstruct
+	void init()
+	{
+		renderTimer = registry.timer("sn0rt.pdf.render", "layout", "single");
+		pdfBytes = DistributionSummary.builder("sn0rt.pdf.bytes")
+			.baseUnit("bytes")
+			.tag("layout", "single")
+			.register(registry);
+		labelsTimer = registry.timer("sn0rt.pdf.render", "layout", "labels");
+		labelsBytes = DistributionSummary.builder("sn0rt.pdf.bytes")
+			.baseUnit("bytes")
+			.tag("layout", "labels")
+			.register(registry);
+	}
+
 	public byte[] generateQrCodePdf(ShortUrl shortUrl, String fullUrl) throws IOException
 	{
-		PDDocument document = new PDDocument();
-		try
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		writeQrCodePdf(shortUrl, fullUrl, baos);
+		return baos.toByteArray();
+	}
+
+	/**
+	 * Writes the PDF straight into {@code output}, e.g. the HTTP response,
+	 * without buffering the finished document.
+	 */
+	public void writeQrCodePdf(ShortUrl shortUrl, String fullUrl, OutputStream output) throws IOException
+	{
+		Timer.Sample sample = Timer.start(registry);
+		CountingOutputStream counting = new CountingOutputStream(output);
+		render(shortUrl, fullUrl, counting);
+		sample.stop(renderTimer);
+		pdfBytes.record(counting.count);
+	}
+
+	private void render(ShortUrl shortUrl, String fullUrl, OutputStream output) throws IOException
+	{
+		try (PDDocument document = new PDDocument())
 		{
 			PDPage page = new PDPage();
 			document.addPage(page);
 
-			// Generate QR code image
-			BufferedImage qrImage = qrCodeService.toImage(qrCodeService.generateQrCode(fullUrl), 8, 4);
+			// Font metrics are cached by PDFBox, but PDFont objects must not be
+			// shared between documents, so create each font once per document
+			PDFont bold = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
+			PDFont regular = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
 
-			// Convert BufferedImage to PDImageXObject
-			PDImageXObject pdImage = LosslessFactory.createFromImage(document, qrImage);
+			// The cached PNG's image data is embedded without re-encoding
+			byte[] qrImage = qrImageCache.get(fullUrl, QR_SCALE, QR_BORDER, QrFormat.PNG);
+			PDImageXObject pdImage = PDImageXObject.createFromByteArray(document, qrImage, "qr-" + shortUrl.shortCode + ".png");
 
-			// Add content to PDF
-			PDPageContentStream contentStream = new PDPageContentStream(document, page);
+			try (PDPageContentStream contentStream = new PDPageContentStream(document, page))
+			{
+				showText(contentStream, bold, 18, TITLE_Y, "QR Code for Short URL");
+				showText(contentStream, regular, 14, SHORT_CODE_Y, "Short Code: " + shortUrl.shortCode);
+				showText(contentStream, regular, 12, URL_Y, "URL: " + fullUrl);
+				showText(contentStream, regular, 10, TARGET_Y, "Redirects to: " + shortUrl.originalUrl);
+				contentStream.drawImage(pdImage, QR_X, QR_Y, QR_SIZE, QR_SIZE);
+			}
 
-			// Add title
-			contentStream.beginText();
-			contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 18);
-			contentStream.newLineAtOffset(50, 750);
-			contentStream.showText("QR Code for Short URL");
-			contentStream.endText();
+			document.save(output);
+		}
+	}
 
-			// Add short code
-			contentStream.beginText();
-			contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 14);
-			contentStream.newLineAtOffset(50, 720);
-			contentStream.showText("Short Code: " + shortUrl.shortCode);
-			contentStream.endText();
+	/**
+	 * Writes a sheet of QR code labels, {@code columns} x {@code rows} per
+	 * page, for the given short codes (or all of them), each repeated
+	 * {@code copies} times. Every QR code is embedded once as an image XObject
+	 * and drawn for all of its copies. Page content and images go to a scratch
+	 * file as soon as they are complete, so the heap only holds the document
+	 * structure.
+	 */
+	public void writeLabelSheet(Collection<String> shortCodes, LabelSheet sheet, OutputStream output) throws IOException
+	{
+		Timer.Sample sample = Timer.start(registry);
+		CountingOutputStream counting = new CountingOutputStream(output);
+		try (PDDocument document = new PDDocument(IOUtils.createTempFileOnlyStreamCache()))
+		{
+			LabelWriter writer = new LabelWriter(document, sheet);
+			repository.forEachPage(shortCodes, LABEL_PAGE_SIZE, page -> {
+				try
+				{
+					for (ShortUrl shortUrl : page)
+					{
+						writer.add(shortUrl);
+					}
+				}
+				catch (IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			});
+			writer.finish();
+			if (document.getNumberOfPages() == 0)
+			{
+				document.addPage(new PDPage(PDRectangle.LETTER));
+			}
+			document.save(counting);
+		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		sample.stop(labelsTimer);
+		labelsBytes.record(counting.count);
+	}
 
-			// Add full URL
-			contentStream.beginText();
-			contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
-			contentStream.newLineAtOffset(50, 695);
-			contentStream.showText("URL: " + fullUrl);
-			contentStream.endText();
+	public record LabelSheet(int columns, int rows, int copies)
+	{
+	}
+
+	private final class LabelWriter
+	{
+		final PDDocument document;
+		final LabelSheet sheet;
+		final PDFont bold = new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD);
+		final PDFont regular = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+		final float cellWidth;
+		final float cellHeight;
+		final float qrSize;
+
+		PDPageContentStream contentStream;
+		int index;
+
+		LabelWriter(PDDocument document, LabelSheet sheet)
+		{
+			this.document = document;
+			this.sheet = sheet;
+			PDRectangle pageSize = PDRectangle.LETTER;
+			cellWidth = (pageSize.getWidth() - 2 * SHEET_MARGIN) / sheet.columns();
+			cellHeight = (pageSize.getHeight() - 2 * SHEET_MARGIN) / sheet.rows();
+			float textHeight = LABEL_CODE_SIZE + LABEL_URL_SIZE + 2 * LABEL_PADDING;
+			qrSize = Math.max(0, Math.min(cellWidth - 2 * LABEL_PADDING, cellHeight - textHeight - LABEL_PADDING));
+		}
+
+		void add(ShortUrl shortUrl) throws IOException
+		{
+			String fullUrl = baseUrl + "/" + shortUrl.shortCode;
+			byte[] png = qrCodeService.toPng(qrCodeService.generateQrCode(fullUrl), LABEL_QR_SCALE, QR_BORDER);
+			PDImageXObject image = PDImageXObject.createFromByteArray(document, png, "qr-" + shortUrl.shortCode + ".png");
+			for (int copy = 0; copy < sheet.copies(); copy++)
+			{
+				draw(shortUrl, image);
+			}
+		}
 
-			// Add original URL
+		void draw(ShortUrl shortUrl, PDImageXObject image) throws IOException
+		{
+			int perPage = sheet.columns() * sheet.rows();
+			int slot = index % perPage;
+			if (slot == 0)
+			{
+				// Closing the last page's stream moves it to the scratch file
+				finish();
+				PDPage page = new PDPage(PDRectangle.LETTER);
+				document.addPage(page);
+				contentStream = new PDPageContentStream(document, page);
+			}
+			index++;
+
+			float left = SHEET_MARGIN + (slot % sheet.columns()) * cellWidth;
+			float top = PDRectangle.LETTER.getHeight() - SHEET_MARGIN - (slot / sheet.columns()) * cellHeight;
+			float qrY = top - LABEL_PADDING - qrSize;
+			contentStream.drawImage(image, left + (cellWidth - qrSize) / 2, qrY, qrSize, qrSize);
+
+			float textWidth = cellWidth - 2 * LABEL_PADDING;
+			float codeY = qrY - LABEL_PADDING - LABEL_CODE_SIZE;
+			showLabelText(bold, LABEL_CODE_SIZE, left, codeY, fit(bold, LABEL_CODE_SIZE, encodable(bold, shortUrl.shortCode), textWidth));
+			showLabelText(regular, LABEL_URL_SIZE, left, codeY - LABEL_URL_SIZE - 2,
+				fit(regular, LABEL_URL_SIZE, encodable(regular, shortUrl.originalUrl), textWidth));
+		}
+
+		void finish() throws IOException
+		{
+			if (contentStream != null)
+			{
+				contentStream.close();
+				contentStream = null;
+			}
+		}
+
+		private void showLabelText(PDFont font, float size, float left, float y, String text) throws IOException
+		{
+			float width = font.getStringWidth(text) / 1000 * size;
 			contentStream.beginText();
-			contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 10);
-			contentStream.newLineAtOffset(50, 675);
-			contentStream.showText("Redirects to: " + shortUrl.originalUrl);
+			contentStream.setFont(font, size);
+			contentStream.newLineAtOffset(left + (cellWidth - width) / 2, y);
+			contentStream.showText(text);
 			contentStream.endText();
+		}
+	}
+
+	private static String fit(PDFont font, float size, String text, float maxWidth) throws IOException
+	{
+		// Glyph widths are in thousandths of the font size
+		float limit = maxWidth * 1000 / size;
+		if (font.getStringWidth(text) <= limit)
+		{
+			return text;
+		}
+		float width = font.getStringWidth("...");
+		int end = 0;
+		while (end < text.length())
+		{
+			float glyph = font.getStringWidth(text.substring(end, end + 1));
+			if (width + glyph > limit)
+			{
+				break;
+			}
+			width += glyph;
+			end++;
+		}
+		return text.substring(0, end) + "...";
+	}
+
+	/**
+	 * Replaces characters the font's encoding has no code for with {@code ?}.
+	 * The Standard 14 fonts only cover WinAnsi, and {@code showText} would
+	 * otherwise fail halfway through a streamed document.
+	 */
+	static String encodable(PDFont font, String text)
+	{
+		StringBuilder result = null;
+		for (int i = 0; i < text.length();)
+		{
+			int codePoint = text.codePointAt(i);
+			int next = i + Character.charCount(codePoint);
+			if (codePoint < 0x20 || codePoint > 0x7e)
+			{
+				if (result == null)
+				{
+					result = new StringBuilder(text.length()).append(text, 0, i);
+				}
+				result.append(canEncode(font, codePoint) ? text.substring(i, next) : "?");
+			}
+			else if (result != null)
+			{
+				result.append((char)codePoint);
+			}
+			i = next;
+		}
+		return result == null ? text : result.toString();
+	}
+
+	private static boolean canEncode(PDFont font, int codePoint)
+	{
+		if (Character.isISOControl(codePoint))
+		{
+			return false;
+		}
+		try
+		{
+			font.encode(Character.toString(codePoint));
+			return true;
+		}
+		catch (IllegalArgumentException | IOException e)
+		{
+			return false;
+		}
+	}
 
-			// Add QR code image
-			contentStream.drawImage(pdImage, 150, 350, 300, 300);
+	private static void showText(PDPageContentStream contentStream, PDFont font, float size, float y, String text) throws IOException
+	{
+		contentStream.beginText();
+		contentStream.setFont(font, size);
+		contentStream.newLineAtOffset(MARGIN, y);
+		contentStream.showText(encodable(font, text));
+		contentStream.endText();
+	}
 
-			contentStream.close();
+	private static final class CountingOutputStream extends FilterOutputStream
+	{
+		long count;
 
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			document.save(baos);
-			return baos.toByteArray();
+		CountingOutputStream(OutputStream out)
+		{
+			super(out);
 		}
-		finally
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			out.write(b, off, len);
+			count += len;
+		}
+
+		// PDDocument.save closes its stream, the caller closes the response
+		@Override
+		public void close() throws IOException
 		{
-			document.close();
+			out.flush();
 		}
 	}
 }
@@ -0,0 +1,88 @@
+package de.sn0rt;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Minimal PNG writer for 1-bit grayscale images, enough for QR codes. Rows are
+ * packed 8 pixels per byte, most significant bit first, 0 = black, 1 = white.
+ */
+final class PngEncoder
+{
+	private static final byte[] SIGNATURE = { (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+
+	private PngEncoder()
+	{
+	}
+
+	static byte[] encodeGray1(byte[] rows, int width, int height)
+	{
+		int stride = (width + 7) / 8;
+
+		// Filter type 0 (none) in front of every scanline
+		byte[] scanlines = new byte[(stride + 1) * height];
+		for (int y = 0; y < height; y++)
+		{
+			System.arraycopy(rows, y * stride, scanlines, y * (stride + 1) + 1, stride);
+		}
+
+		ByteArrayOutputStream png = new ByteArrayOutputStream(scanlines.length / 8 + 128);
+		png.writeBytes(SIGNATURE);
+
+		byte[] header = new byte[13];
+		putInt(header, 0, width);
+		putInt(header, 4, height);
+		header[8] = 1; // bit depth
+		header[9] = 0; // grayscale
+		writeChunk(png, "IHDR", header, header.length);
+
+		Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		try
+		{
+			deflater.setInput(scanlines);
+			deflater.finish();
+			byte[] buffer = new byte[Math.max(64, scanlines.length / 4)];
+			ByteArrayOutputStream data = new ByteArrayOutputStream(buffer.length);
+			while (!deflater.finished())
+			{
+				int length = deflater.deflate(buffer);
+				data.write(buffer, 0, length);
+			}
+			writeChunk(png, "IDAT", data.toByteArray(), data.size());
+		}
+		finally
+		{
+			deflater.end();
+		}
+
+		writeChunk(png, "IEND", new byte[0], 0);
+		return png.toByteArray();
+	}
+
+	private static void writeChunk(ByteArrayOutputStream png, String type, byte[] data, int length)
+	{
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		byte[] field = new byte[4];
+
+		putInt(field, 0, length);
+		png.writeBytes(field);
+		png.writeBytes(typeBytes);
+		png.write(data, 0, length);
+
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		putInt(field, 0, (int)crc.getValue());
+		png.writeBytes(field);
+	}
+
+	private static void putInt(byte[] target, int offset, int value)
+	{
+		target[offset] = (byte)(value >>> 24);
+		target[offset + 1] = (byte)(value >>> 16);
+		target[offset + 2] = (byte)(value >>> 8);
+		target[offset + 3] = (byte)value;
+	}
+}
@@ -1,52 +1,164 @@
 package de.sn0rt;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.nayuki.qrcodegen.QrCode;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
 import java.util.Base64;
 
 @ApplicationScoped
 public class QRCodeService
 {
+	@Inject
+	MeterRegistry registry;
+
+	Timer encodeTimer;
+	Timer imageTimer;
+	Timer pngTimer;
+	Timer svgTimer;
+	DistributionSummary pngBytes;
+	DistributionSummary svgBytes;
+
+	@PostConstruct
+	void init()
+	{
+		encodeTimer = registry.timer("sn0rt.qr.render", "stage", "encode");
+		imageTimer = registry.timer("sn0rt.qr.render", "stage", "image");
+		pngTimer = registry.timer("sn0rt.qr.render", "stage", "png");
+		svgTimer = registry.timer("sn0rt.qr.render", "stage", "svg");
+		pngBytes = DistributionSummary.builder("sn0rt.qr.bytes")
+			.baseUnit("bytes")
+			.tag("format", "png")
+			.register(registry);
+		svgBytes = DistributionSummary.builder("sn0rt.qr.bytes")
+			.baseUnit("bytes")
+			.tag("format", "svg")
+			.register(registry);
+	}
+
 	public QrCode generateQrCode(String data)
 	{
-		return QrCode.encodeText(data, QrCode.Ecc.MEDIUM);
+		return encodeTimer.record(() -> QrCode.encodeText(data, QrCode.Ecc.MEDIUM));
 	}
 
 	public String toBase64Image(QrCode qr, int scale, int border)
 	{
-		BufferedImage img = toImage(qr, scale, border);
-		try (ByteArrayOutputStream baos = new ByteArrayOutputStream())
-		{
-			ImageIO.write(img, "PNG", baos);
-			byte[] bytes = baos.toByteArray();
-			return Base64.getEncoder().encodeToString(bytes);
-		}
-		catch (IOException e)
-		{
-			throw new RuntimeException("Failed to generate QR code image", e);
-		}
+		return Base64.getEncoder().encodeToString(toPng(qr, scale, border));
+	}
+
+	public byte[] toPng(QrCode qr, int scale, int border)
+	{
+		int imgSize = (qr.size + border * 2) * scale;
+		byte[] rows = imageTimer.record(() -> render(qr, scale, border));
+		byte[] png = pngTimer.record(() -> PngEncoder.encodeGray1(rows, imgSize, imgSize));
+		pngBytes.record(png.length);
+		return png;
 	}
 
 	public BufferedImage toImage(QrCode qr, int scale, int border)
 	{
-		int size = qr.size;
-		int imgSize = (size + border * 2) * scale;
-		BufferedImage img = new BufferedImage(imgSize, imgSize, BufferedImage.TYPE_INT_RGB);
+		return imageTimer.record(() -> {
+			int imgSize = (qr.size + border * 2) * scale;
+			BufferedImage img = new BufferedImage(imgSize, imgSize, BufferedImage.TYPE_BYTE_BINARY);
+			byte[] raster = ((DataBufferByte)img.getRaster().getDataBuffer()).getData();
+			byte[] rows = render(qr, scale, border);
+			System.arraycopy(rows, 0, raster, 0, rows.length);
+			return img;
+		});
+	}
+
+	public String toSvg(QrCode qr, int scale, int border)
+	{
+		return svgTimer.record(() -> {
+			int size = qr.size + border * 2;
+			StringBuilder svg = new StringBuilder(128 + qr.size * qr.size);
+			svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"")
+				.append(size * scale).append("\" height=\"").append(size * scale)
+				.append("\" viewBox=\"0 0 ").append(size).append(' ').append(size)
+				.append("\" shape-rendering=\"crispEdges\"><rect width=\"100%\" height=\"100%\" fill=\"#fff\"/><path fill=\"#000\" d=\"");
 
-		for (int y = 0; y < imgSize; y++)
+			// One rectangle per horizontal run of dark modules
+			for (int y = 0; y < qr.size; y++)
+			{
+				int x = 0;
+				while (x < qr.size)
+				{
+					if (!qr.getModule(x, y))
+					{
+						x++;
+						continue;
+					}
+					int start = x;
+					while (x < qr.size && qr.getModule(x, y))
+					{
+						x++;
+					}
+					svg.append('M').append(start + border).append(',').append(y + border)
+						.append('h').append(x - start).append("v1h-").append(x - start).append('z');
+				}
+			}
+
+			String result = svg.append("\"/></svg>").toString();
+			svgBytes.record(result.length());
+			return result;
+		});
+	}
+
+	/**
+	 * Renders the code as packed 1-bit rows (MSB first, 0 = black, 1 = white),
+	 * the layout of both TYPE_BYTE_BINARY rasters and 1-bit grayscale PNG. Each
+	 * module row is drawn once and copied to the following scanlines.
+	 */
+	private byte[] render(QrCode qr, int scale, int border)
+	{
+		int imgSize = (qr.size + border * 2) * scale;
+		int stride = (imgSize + 7) / 8;
+		byte[] rows = new byte[stride * imgSize];
+		Arrays.fill(rows, (byte)0xFF);
+
+		for (int y = 0; y < qr.size; y++)
 		{
-			for (int x = 0; x < imgSize; x++)
+			int offset = (y + border) * scale * stride;
+			for (int x = 0; x < qr.size; x++)
+			{
+				if (qr.getModule(x, y))
+				{
+					int from = (x + border) * scale;
+					clearBits(rows, offset, from, from + scale);
+				}
+			}
+			for (int line = 1; line < scale; line++)
 			{
-				boolean module = qr.getModule((x / scale) - border, (y / scale) - border);
-				img.setRGB(x, y, module ? 0x000000 : 0xFFFFFF);
+				System.arraycopy(rows, offset, rows, offset + line * stride, stride);
 			}
 		}
 
-		return img;
+		return rows;
+	}
+
+	private static void clearBits(byte[] rows, int offset, int from, int to)
+	{
+		while (from < to && (from & 7) != 0)
+		{
+			rows[offset + (from >> 3)] &= (byte)~(0x80 >>> (from & 7));
+			from++;
+		}
+		while (to - from >= 8)
+		{
+			rows[offset + (from >> 3)] = 0;
+			from += 8;
+		}
+		while (from < to)
+		{
+			rows[offset + (from >> 3)] &= (byte)~(0x80 >>> (from & 7));
+			from++;
+		}
 	}
 }
@@ -0,0 +1,241 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes QR codes for many short URLs as a ZIP archive. Rows are read once in
+ * small pages, each in its own short transaction, and spooled to temporary
+ * files. Images are encoded on the render pool with a bounded number in flight,
+ * then written in id order. Memory use does not depend on the number of
+ * entries.
+ */
+@ApplicationScoped
+public class QrExportService
+{
+	static final String MANIFEST = "manifest.csv";
+	private static final int PAGE_SIZE = 500;
+	private static final int SCALE = 8;
+	private static final int BORDER = 4;
+
+	@Inject
+	ShortUrlRepository repository;
+
+	@Inject
+	QRCodeService qrCodeService;
+
+	@Inject
+	RenderExecutor renderExecutor;
+
+	@Inject
+	MeterRegistry registry;
+
+	@ConfigProperty(name = "sn0rt.base-url")
+	String baseUrl;
+
+	/**
+	 * @param shortCodes
+	 *            the short codes to export, or {@code null} for all
+	 */
+	public void writeZip(Collection<String> shortCodes, QrFormat format, OutputStream output) throws IOException
+	{
+		Timer.Sample sample = Timer.start(registry);
+		Path manifest = Files.createTempFile("sn0rt-qr-manifest", ".csv");
+		Path entries = Files.createTempFile("sn0rt-qr-entries", ".bin");
+		try
+		{
+			// One read feeds both the manifest and the images, so they list the
+			// same links even while rows are added or deleted
+			spool(shortCodes, format, manifest, entries);
+			ZipOutputStream zip = new ZipOutputStream(output);
+			writeManifest(zip, manifest);
+			writeImages(zip, entries, format);
+			zip.finish();
+			zip.flush();
+		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		finally
+		{
+			Files.deleteIfExists(manifest);
+			Files.deleteIfExists(entries);
+		}
+		sample.stop(registry.timer("sn0rt.qr.export", "format", format.name().toLowerCase()));
+	}
+
+	private void spool(Collection<String> shortCodes, QrFormat format, Path manifest, Path entries) throws IOException
+	{
+		try (Writer lines = Files.newBufferedWriter(manifest, StandardCharsets.UTF_8);
+			DataOutputStream images = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(entries))))
+		{
+			lines.write("shortCode,shortUrl,originalUrl,file\n");
+			repository.forEachPage(shortCodes, PAGE_SIZE, page -> {
+				try
+				{
+					for (ShortUrl shortUrl : page)
+					{
+						String name = fileName(shortUrl, format);
+						lines.append(csv(shortUrl.shortCode)).append(',')
+							.append(csv(shortUrl(shortUrl))).append(',')
+							.append(csv(shortUrl.originalUrl)).append(',')
+							.append(csv(name)).append('\n');
+						images.writeUTF(name);
+						images.writeUTF(shortUrl(shortUrl));
+					}
+				}
+				catch (IOException e)
+				{
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+	}
+
+	private static void writeManifest(ZipOutputStream zip, Path manifest) throws IOException
+	{
+		// The manifest goes first so clients can read it without the images
+		zip.putNextEntry(new ZipEntry(MANIFEST));
+		Files.copy(manifest, zip);
+		zip.closeEntry();
+	}
+
+	private void writeImages(ZipOutputStream zip, Path entries, QrFormat format) throws IOException
+	{
+		// Encode ahead on the render pool, write strictly in order
+		int window = renderExecutor.parallelism() * 4;
+		Deque<Future<Entry>> inFlight = new ArrayDeque<>(window);
+		try (DataInputStream images = new DataInputStream(new BufferedInputStream(Files.newInputStream(entries))))
+		{
+			while (true)
+			{
+				String name;
+				String content;
+				try
+				{
+					name = images.readUTF();
+					content = images.readUTF();
+				}
+				catch (EOFException e)
+				{
+					break;
+				}
+				if (inFlight.size() == window)
+				{
+					writeEntry(zip, await(inFlight.removeFirst()));
+				}
+				inFlight.addLast(renderExecutor.submit(() -> new Entry(name, render(content, format))));
+			}
+			while (!inFlight.isEmpty())
+			{
+				writeEntry(zip, await(inFlight.removeFirst()));
+			}
+		}
+		finally
+		{
+			inFlight.forEach(future -> future.cancel(true));
+		}
+	}
+
+	private byte[] render(String content, QrFormat format)
+	{
+		return switch (format)
+		{
+			case PNG -> qrCodeService.toPng(qrCodeService.generateQrCode(content), SCALE, BORDER);
+			case SVG -> qrCodeService.toSvg(qrCodeService.generateQrCode(content), SCALE, BORDER).getBytes(StandardCharsets.UTF_8);
+		};
+	}
+
+	private static void writeEntry(ZipOutputStream zip, Entry entry)
+	{
+		ZipEntry zipEntry = new ZipEntry(entry.name());
+		if (entry.name().endsWith(".png"))
+		{
+			// PNG data is already deflated, store it as is
+			CRC32 crc = new CRC32();
+			crc.update(entry.data());
+			zipEntry.setMethod(ZipEntry.STORED);
+			zipEntry.setSize(entry.data().length);
+			zipEntry.setCompressedSize(entry.data().length);
+			zipEntry.setCrc(crc.getValue());
+		}
+		try
+		{
+			zip.putNextEntry(zipEntry);
+			zip.write(entry.data());
+			zip.closeEntry();
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static Entry await(Future<Entry> future)
+	{
+		try
+		{
+			return future.get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("QR export interrupted", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("Failed to render QR code", e.getCause());
+		}
+	}
+
+	private String shortUrl(ShortUrl shortUrl)
+	{
+		return baseUrl + "/" + shortUrl.shortCode;
+	}
+
+	static String fileName(ShortUrl shortUrl, QrFormat format)
+	{
+		String safe = shortUrl.shortCode.replaceAll("[^A-Za-z0-9._-]", "_");
+		// Keep names unique when different codes sanitize to the same string
+		String name = safe.equals(shortUrl.shortCode) ? safe : safe + "-" + shortUrl.id;
+		return "qr-" + name + "." + format.name().toLowerCase();
+	}
+
+	static String csv(String value)
+	{
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+		{
+			return value;
+		}
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	private record Entry(String name, byte[] data)
+	{
+	}
+}
@@ -0,0 +1,82 @@
+package de.sn0rt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@ApplicationScoped
+public class QrImageCache
+{
+	// Rough per-entry overhead of key, node and array header
+	private static final int ENTRY_OVERHEAD = 128;
+
+	@ConfigProperty(name = "sn0rt.qr-cache.max-bytes", defaultValue = "33554432")
+	long maxBytes;
+
+	@Inject
+	QRCodeService qrCodeService;
+
+	@Inject
+	MeterRegistry registry;
+
+	Cache<Key, byte[]> images;
+	// Cached variants per content, so invalidating one does not scan the cache
+	private final ConcurrentHashMap<String, Set<Key>> variants = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	void init()
+	{
+		images = Caffeine.newBuilder()
+			.maximumWeight(maxBytes)
+			.<Key, byte[]> weigher((key, image) -> ENTRY_OVERHEAD + key.content().length() * 2 + image.length)
+			.<Key, byte[]> evictionListener((key, image, cause) -> forget(key))
+			.recordStats()
+			.build();
+		CaffeineCacheMetrics.monitor(registry, images, "qr-images");
+	}
+
+	public byte[] get(String content, int scale, int border, QrFormat format)
+	{
+		return images.get(new Key(content, scale, border, format), this::render);
+	}
+
+	public void invalidate(String content)
+	{
+		Set<Key> keys = variants.remove(content);
+		if (keys != null)
+		{
+			images.invalidateAll(keys);
+		}
+	}
+
+	private void forget(Key key)
+	{
+		variants.computeIfPresent(key.content(), (content, keys) -> {
+			keys.remove(key);
+			return keys.isEmpty() ? null : keys;
+		});
+	}
+
+	private byte[] render(Key key)
+	{
+		variants.computeIfAbsent(key.content(), content -> ConcurrentHashMap.newKeySet()).add(key);
+		return switch (key.format())
+		{
+			case PNG -> qrCodeService.toPng(qrCodeService.generateQrCode(key.content()), key.scale(), key.border());
+			case SVG -> qrCodeService.toSvg(qrCodeService.generateQrCode(key.content()), key.scale(), key.border()).getBytes(StandardCharsets.UTF_8);
+		};
+	}
+
+	record Key(String content, int scale, int border, QrFormat format)
+	{
+	}
+}
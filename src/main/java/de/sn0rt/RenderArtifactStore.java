@@ -0,0 +1,340 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Rendered QR images and PDFs on disk, named by a SHA-256 of their render
+ * inputs. Files are written once to a temporary name and moved into place, so
+ * readers only ever see complete files and concurrent renders of the same
+ * artifact are harmless. They survive restarts and are served from disk. Files
+ * no current link refers to, left behind by changed targets, base URLs or
+ * render versions, are swept on a schedule.
+ */
+@ApplicationScoped
+public class RenderArtifactStore
+{
+	// Bump when the rendered output changes so stale files are not served
+	static final int RENDER_VERSION = 1;
+	static final int QR_SCALE = 4;
+	static final int QR_BORDER = 2;
+	// Younger files may belong to links the sweep has not seen yet
+	static final Duration SWEEP_MIN_AGE = Duration.ofHours(1);
+	private static final int SWEEP_PAGE_SIZE = 1000;
+
+	@ConfigProperty(name = "sn0rt.artifacts.dir")
+	String directory;
+
+	@ConfigProperty(name = "sn0rt.base-url")
+	String baseUrl;
+
+	@Inject
+	QrImageCache qrImageCache;
+
+	@Inject
+	PdfService pdfService;
+
+	@Inject
+	RenderExecutor renderExecutor;
+
+	@Inject
+	ShortUrlRepository repository;
+
+	@Inject
+	TransactionSynchronizationRegistry transactionRegistry;
+
+	@Inject
+	MeterRegistry registry;
+
+	Path root;
+	Counter hits;
+	Counter misses;
+
+	@PostConstruct
+	void init()
+	{
+		root = Path.of(directory);
+		hits = registry.counter("sn0rt.artifacts.requests", "result", "hit");
+		misses = registry.counter("sn0rt.artifacts.requests", "result", "miss");
+	}
+
+	/**
+	 * Identifies the admin page QR image of a short code. It depends only on
+	 * the short URL, so it doubles as the image's ETag.
+	 */
+	public String qrImageKey(String shortCode, QrFormat format)
+	{
+		return sha256(RENDER_VERSION + "|qr|" + format + "|" + QR_SCALE + "|" + QR_BORDER + "|" + baseUrl + "/" + shortCode);
+	}
+
+	public Path qrImage(String shortCode, QrFormat format)
+	{
+		Path path = path(qrImageKey(shortCode, format), extension(format));
+		return fetch(path, output -> output.write(qrImageCache.get(baseUrl + "/" + shortCode, QR_SCALE, QR_BORDER, format)));
+	}
+
+	public Path qrPdf(ShortUrl shortUrl)
+	{
+		String fullUrl = baseUrl + "/" + shortUrl.shortCode;
+		return fetch(pdfPath(shortUrl.shortCode, shortUrl.originalUrl), output -> pdfService.writeQrCodePdf(shortUrl, fullUrl, output));
+	}
+
+	/**
+	 * Renders the artifacts of a new or changed short URL on the render pool
+	 * once the caller's transaction has committed, so that the first download
+	 * is already served from disk. Nothing is rendered on rollback.
+	 */
+	@Transactional(Transactional.TxType.MANDATORY)
+	public void prerender(String shortCode, String originalUrl)
+	{
+		afterCommit(() -> renderExecutor.execute(() -> render(shortCode, originalUrl)));
+	}
+
+	void render(String shortCode, String originalUrl)
+	{
+		try
+		{
+			Path image = qrImage(shortCode, QrFormat.PNG);
+			Path pdf = qrPdf(new ShortUrl(shortCode, originalUrl));
+			// The link may have been deleted or changed meanwhile, and its
+			// eviction may have run before the files were moved into place
+			Optional<String> target = repository.findTargetByShortCode(shortCode);
+			if (target.isEmpty())
+			{
+				delete(image);
+			}
+			if (!target.equals(Optional.of(originalUrl)))
+			{
+				delete(pdf);
+			}
+		}
+		catch (RuntimeException e)
+		{
+			Log.warnf(e, "Failed to prerender artifacts of %s, rendering on first request", shortCode);
+		}
+	}
+
+	/**
+	 * Removes every artifact of a deleted short URL.
+	 */
+	public void evict(String shortCode, String originalUrl)
+	{
+		for (QrFormat format : QrFormat.values())
+		{
+			delete(path(qrImageKey(shortCode, format), extension(format)));
+		}
+		delete(pdfPath(shortCode, originalUrl));
+	}
+
+	/**
+	 * Removes the PDF rendered for a previous target, which it prints, once the
+	 * caller's transaction has committed.
+	 */
+	@Transactional(Transactional.TxType.MANDATORY)
+	public void evictPdf(String shortCode, String originalUrl)
+	{
+		afterCommit(() -> delete(pdfPath(shortCode, originalUrl)));
+	}
+
+	@Scheduled(every = "${sn0rt.artifacts.sweep-interval}", delayed = "5m", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+	void scheduledSweep()
+	{
+		sweep(Instant.now().minus(SWEEP_MIN_AGE));
+	}
+
+	/**
+	 * Deletes the files last modified before {@code cutoff} that no current
+	 * link refers to, including temporary files of interrupted renders. Only
+	 * the names of the files on disk are held in memory.
+	 *
+	 * @return the number of files deleted
+	 */
+	int sweep(Instant cutoff)
+	{
+		Map<String, Path> unreferenced = new HashMap<>();
+		if (!Files.isDirectory(root))
+		{
+			return 0;
+		}
+		try (Stream<Path> files = Files.walk(root, 2))
+		{
+			files.filter(path -> modifiedBefore(path, cutoff))
+				.forEach(path -> unreferenced.put(path.getFileName().toString(), path));
+		}
+		catch (IOException | UncheckedIOException e)
+		{
+			Log.warnf(e, "Failed to list render artifacts in %s, sweeping on next run", root);
+			return 0;
+		}
+		if (unreferenced.isEmpty())
+		{
+			return 0;
+		}
+
+		repository.forEachPage(null, SWEEP_PAGE_SIZE, page -> {
+			for (ShortUrl shortUrl : page)
+			{
+				for (QrFormat format : QrFormat.values())
+				{
+					unreferenced.remove(qrImageKey(shortUrl.shortCode, format) + extension(format));
+				}
+				unreferenced.remove(pdfKey(shortUrl.shortCode, shortUrl.originalUrl) + ".pdf");
+			}
+		});
+		unreferenced.values().forEach(RenderArtifactStore::delete);
+		if (!unreferenced.isEmpty())
+		{
+			Log.infof("Deleted %d unreferenced render artifacts", unreferenced.size());
+		}
+		return unreferenced.size();
+	}
+
+	private void afterCommit(Runnable action)
+	{
+		transactionRegistry.registerInterposedSynchronization(new Synchronization()
+		{
+			@Override
+			public void beforeCompletion()
+			{
+			}
+
+			@Override
+			public void afterCompletion(int status)
+			{
+				if (status == Status.STATUS_COMMITTED)
+				{
+					action.run();
+				}
+			}
+		});
+	}
+
+	private Path pdfPath(String shortCode, String originalUrl)
+	{
+		return path(pdfKey(shortCode, originalUrl), ".pdf");
+	}
+
+	private String pdfKey(String shortCode, String originalUrl)
+	{
+		return sha256(RENDER_VERSION + "|pdf|" + baseUrl + "/" + shortCode + "|" + originalUrl);
+	}
+
+	private Path path(String key, String extension)
+	{
+		// Fan out over subdirectories to keep directory listings short
+		return root.resolve(key.substring(0, 2)).resolve(key + extension);
+	}
+
+	private Path fetch(Path path, ArtifactWriter writer)
+	{
+		if (Files.exists(path))
+		{
+			hits.increment();
+			return path;
+		}
+
+		misses.increment();
+		try
+		{
+			Files.createDirectories(path.getParent());
+			Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+			try
+			{
+				try (OutputStream output = Files.newOutputStream(temp))
+				{
+					writer.write(output);
+				}
+				Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+			}
+			finally
+			{
+				Files.deleteIfExists(temp);
+			}
+			return path;
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException("Failed to write render artifact " + path, e);
+		}
+	}
+
+	private static boolean modifiedBefore(Path path, Instant cutoff)
+	{
+		try
+		{
+			return Files.isRegularFile(path) && Files.getLastModifiedTime(path).toInstant().isBefore(cutoff);
+		}
+		catch (IOException e)
+		{
+			// Deleted or replaced while listing
+			return false;
+		}
+	}
+
+	private static void delete(Path path)
+	{
+		try
+		{
+			Files.deleteIfExists(path);
+		}
+		catch (IOException e)
+		{
+			Log.warnf(e, "Failed to delete render artifact %s", path);
+		}
+	}
+
+	private static String extension(QrFormat format)
+	{
+		return switch (format)
+		{
+			case PNG -> ".png";
+			case SVG -> ".svg";
+		};
+	}
+
+	private static String sha256(String value)
+	{
+		try
+		{
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(digest);
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@FunctionalInterface
+	private interface ArtifactWriter
+	{
+		void write(OutputStream output) throws IOException;
+	}
+}
@@ -0,0 +1,64 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fixed pool for CPU-bound rendering (QR codes, images), sized to the number of
+ * cores so bulk jobs neither starve the request workers nor oversubscribe the
+ * CPU.
+ */
+@ApplicationScoped
+public class RenderExecutor
+{
+	@ConfigProperty(name = "sn0rt.render.threads")
+	Optional<Integer> threads;
+
+	@Inject
+	MeterRegistry registry;
+
+	ExecutorService executor;
+	int parallelism;
+
+	@PostConstruct
+	void init()
+	{
+		parallelism = threads.orElse(Runtime.getRuntime().availableProcessors());
+		executor = ExecutorServiceMetrics.monitor(registry,
+			Executors.newFixedThreadPool(parallelism, Thread.ofPlatform().name("sn0rt-render-", 0).daemon().factory()),
+			"sn0rt-render", List.of());
+	}
+
+	@PreDestroy
+	void shutdown()
+	{
+		executor.shutdownNow();
+	}
+
+	public <T> Future<T> submit(Callable<T> task)
+	{
+		return executor.submit(task);
+	}
+
+	public void execute(Runnable task)
+	{
+		executor.execute(task);
+	}
+
+	public int parallelism()
+	{
+		return parallelism;
+	}
+}
@@ -0,0 +1,128 @@
+package de.sn0rt;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer queue (Dmitry Vyukov's bounded MPMC queue).
+ * Every slot carries a sequence number that tells producers and consumers
+ * whether it is free or filled for their lap, so {@link #offer} never blocks
+ * and a full buffer rejects instead of waiting.
+ */
+public final class RingBuffer<E>
+{
+	private final Object[] elements;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	public RingBuffer(int capacity)
+	{
+		if (capacity < 2)
+		{
+			throw new IllegalArgumentException("capacity must be at least 2");
+		}
+		int size = Integer.highestOneBit(capacity - 1) << 1;
+		elements = new Object[size];
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++)
+		{
+			sequences.set(i, i);
+		}
+		mask = size - 1;
+	}
+
+	/**
+	 * @return {@code false} if the buffer is full
+	 */
+	public boolean offer(E element)
+	{
+		long position = tail.get();
+		while (true)
+		{
+			int index = (int)(position & mask);
+			long difference = sequences.getAcquire(index) - position;
+			if (difference == 0)
+			{
+				if (tail.compareAndSet(position, position + 1))
+				{
+					elements[index] = element;
+					sequences.setRelease(index, position + 1);
+					return true;
+				}
+				position = tail.get();
+			}
+			else if (difference < 0)
+			{
+				return false;
+			}
+			else
+			{
+				position = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * @return the oldest element, or {@code null} if the buffer is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public E poll()
+	{
+		long position = head.get();
+		while (true)
+		{
+			int index = (int)(position & mask);
+			long difference = sequences.getAcquire(index) - (position + 1);
+			if (difference == 0)
+			{
+				if (head.compareAndSet(position, position + 1))
+				{
+					E element = (E)elements[index];
+					elements[index] = null;
+					sequences.setRelease(index, position + mask + 1);
+					return element;
+				}
+				position = head.get();
+			}
+			else if (difference < 0)
+			{
+				return null;
+			}
+			else
+			{
+				position = head.get();
+			}
+		}
+	}
+
+	/**
+	 * Moves up to {@code max} elements into {@code target}.
+	 *
+	 * @return the number of elements moved
+	 */
+	public int drainTo(List<? super E> target, int max)
+	{
+		int drained = 0;
+		E element;
+		while (drained < max && (element = poll()) != null)
+		{
+			target.add(element);
+			drained++;
+		}
+		return drained;
+	}
+
+	public int size()
+	{
+		long size = tail.get() - head.get();
+		return (int)Math.max(0, Math.min(size, capacity()));
+	}
+
+	public int capacity()
+	{
+		return elements.length;
+	}
+}
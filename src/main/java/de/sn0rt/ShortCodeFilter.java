@@ -0,0 +1,239 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter of all short codes, so unknown codes are answered without a
+ * query. Codes created on other instances arrive through the
+ * {@code short_code_added} channel, which an insert trigger notifies and this
+ * bean LISTENs to on a dedicated connection. While that connection is down, and
+ * until the rebuild after reconnecting has caught up with what was missed, the
+ * filter answers "might contain" for every code, so it never turns away an
+ * existing one.
+ */
+@ApplicationScoped
+public class ShortCodeFilter
+{
+	static final String CHANNEL = "short_code_added";
+	private static final int POLL_MILLIS = 500;
+	private static final long RECONNECT_MILLIS = 5000;
+
+	// Longer than the default transaction timeout, so a code persisted just
+	// before a rebuild is re-added even if its insert commits after the scan.
+	private static final long RECENT_WINDOW_NANOS = Duration.ofMinutes(5).toNanos();
+
+	@Inject
+	ShortUrlRepository repository;
+
+	@Inject
+	DataSource dataSource;
+
+	@Inject
+	MeterRegistry registry;
+
+	@ConfigProperty(name = "sn0rt.bloom-filter.enabled", defaultValue = "true")
+	boolean enabled;
+
+	@ConfigProperty(name = "sn0rt.bloom-filter.expected-insertions", defaultValue = "1000000")
+	long expectedInsertions;
+
+	@ConfigProperty(name = "sn0rt.bloom-filter.false-positive-rate", defaultValue = "0.01")
+	double falsePositiveRate;
+
+	// null until the first build has finished, which means "might contain"
+	private volatile BloomFilter filter;
+	private volatile BloomFilter building;
+	private final ConcurrentHashMap<String, Long> recent = new ConcurrentHashMap<>();
+	private volatile boolean listening;
+	private volatile boolean stopped;
+
+	void onStartup(@Observes StartupEvent event)
+	{
+		if (!enabled)
+		{
+			return;
+		}
+		// Listen first, so codes inserted during the scan are not missed
+		Connection connection = listen();
+		listening = connection != null && rebuild();
+		Thread.ofPlatform().name("short-code-listener").daemon().start(() -> receive(connection));
+	}
+
+	void onShutdown(@Observes ShutdownEvent event)
+	{
+		stopped = true;
+	}
+
+	// Bloom filters cannot forget, so deleted codes are only dropped here
+	@Scheduled(every = "${sn0rt.bloom-filter.rebuild-interval}", delayed = "${sn0rt.bloom-filter.rebuild-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+	void scheduledRebuild()
+	{
+		rebuild();
+	}
+
+	public boolean mightContain(String shortCode)
+	{
+		BloomFilter current = filter;
+		return current == null || !listening || current.mightContain(shortCode);
+	}
+
+	public void put(String shortCode)
+	{
+		if (!enabled)
+		{
+			return;
+		}
+
+		recent.put(shortCode, System.nanoTime());
+		BloomFilter current = filter;
+		if (current != null)
+		{
+			current.put(shortCode);
+		}
+		BloomFilter next = building;
+		if (next != null)
+		{
+			next.put(shortCode);
+		}
+	}
+
+	/**
+	 * @return {@code false} if the rebuild failed and the previous filter is
+	 *         kept
+	 */
+	public synchronized boolean rebuild()
+	{
+		if (!enabled)
+		{
+			return false;
+		}
+
+		long started = System.nanoTime();
+		try
+		{
+			BloomFilter rebuilt = QuarkusTransaction.requiringNew().call(() -> {
+				BloomFilter next = BloomFilter.create(Math.max(expectedInsertions, 2 * repository.count()), falsePositiveRate);
+				building = next;
+				try (Stream<String> shortCodes = repository.streamAllShortCodes())
+				{
+					shortCodes.forEach(next::put);
+				}
+				return next;
+			});
+
+			recent.entrySet().removeIf(entry -> started - entry.getValue() > RECENT_WINDOW_NANOS);
+			recent.keySet().forEach(rebuilt::put);
+			filter = rebuilt;
+			registry.timer("sn0rt.db.query", "query", "streamAllShortCodes", "client", "jdbc").record(Duration.ofNanos(System.nanoTime() - started));
+			Log.debugf("Rebuilt short code filter with %d bits in %d ms", rebuilt.bitCount(), Duration.ofNanos(System.nanoTime() - started).toMillis());
+			return true;
+		}
+		catch (RuntimeException e)
+		{
+			Log.warn("Failed to rebuild short code filter, keeping the previous one", e);
+			return false;
+		}
+		finally
+		{
+			building = null;
+		}
+	}
+
+	private Connection listen()
+	{
+		try
+		{
+			Connection connection = dataSource.getConnection();
+			try (Statement statement = connection.createStatement())
+			{
+				statement.execute("listen " + CHANNEL);
+			}
+			return connection;
+		}
+		catch (SQLException e)
+		{
+			Log.warn("Failed to listen for new short codes, querying the database for every code until it works", e);
+			return null;
+		}
+	}
+
+	private void receive(Connection connection)
+	{
+		while (!stopped)
+		{
+			if (connection == null || !listening)
+			{
+				try
+				{
+					Thread.sleep(RECONNECT_MILLIS);
+				}
+				catch (InterruptedException e)
+				{
+					break;
+				}
+				if (connection == null)
+				{
+					connection = listen();
+				}
+				// Codes created while disconnected are only known to the table
+				listening = connection != null && rebuild();
+				continue;
+			}
+
+			try
+			{
+				PGNotification[] notifications = connection.unwrap(PGConnection.class).getNotifications(POLL_MILLIS);
+				if (notifications != null)
+				{
+					for (PGNotification notification : notifications)
+					{
+						put(notification.getParameter());
+					}
+				}
+			}
+			catch (SQLException e)
+			{
+				listening = false;
+				Log.warn("Lost the short code notifications, reconnecting", e);
+				close(connection);
+				connection = null;
+			}
+		}
+		close(connection);
+	}
+
+	private static void close(Connection connection)
+	{
+		if (connection == null)
+		{
+			return;
+		}
+		try
+		{
+			connection.close();
+		}
+		catch (SQLException e)
+		{
+			Log.debug("Failed to close the short code listener connection", e);
+		}
+	}
+}
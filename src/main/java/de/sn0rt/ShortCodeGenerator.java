@@ -0,0 +1,108 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+@ApplicationScoped
+public class ShortCodeGenerator
+{
+	// Must match the increment of short_code_seq
+	static final int BLOCK_SIZE = 100;
+
+	// Scrambled ids are permuted within 40 bits, which always fits into seven
+	// Base62 characters
+	static final int SCRAMBLE_BITS = 40;
+	static final long SCRAMBLE_MASK = (1L << SCRAMBLE_BITS) - 1;
+	static final int SCRAMBLED_LENGTH = 7;
+
+	@Inject
+	ShortUrlRepository repository;
+
+	@Inject
+	ShortCodeFilter shortCodeFilter;
+
+	@Inject
+	MeterRegistry registry;
+
+	@ConfigProperty(name = "sn0rt.short-code.strategy", defaultValue = "sequence")
+	ShortCodeStrategy strategy;
+
+	@ConfigProperty(name = "sn0rt.short-code.scramble", defaultValue = "true")
+	boolean scramble;
+
+	@ConfigProperty(name = "sn0rt.short-code.scramble-key", defaultValue = "0")
+	long scrambleKey;
+
+	// Not a monitor: reserving a block queries the database, which would pin
+	// the carrier of a virtual thread
+	private final ReentrantLock lock = new ReentrantLock();
+	private long nextId;
+	private long blockEnd;
+
+	public String generate()
+	{
+		String shortCode = next();
+		// Generated codes can only clash with custom codes, and the filter
+		// rules that out for nearly all of them without a query
+		while (shortCodeFilter.mightContain(shortCode) && repository.existsByShortCode(shortCode))
+		{
+			registry.counter("sn0rt.short_code.collisions").increment();
+			shortCode = next();
+		}
+		return shortCode;
+	}
+
+	String next()
+	{
+		return strategy == ShortCodeStrategy.SEQUENCE ? encode(nextId()) : randomCode();
+	}
+
+	String randomCode()
+	{
+		return UUID.randomUUID().toString().substring(0, 8);
+	}
+
+	String encode(long id)
+	{
+		if (scramble && id <= SCRAMBLE_MASK)
+		{
+			return Base62.encode(scramble(id, scrambleKey), SCRAMBLED_LENGTH);
+		}
+		return Base62.encode(id);
+	}
+
+	private long nextId()
+	{
+		lock.lock();
+		try
+		{
+			if (nextId >= blockEnd)
+			{
+				nextId = repository.nextShortCodeBlock();
+				blockEnd = nextId + BLOCK_SIZE;
+			}
+			return nextId++;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	// A bijection on [0, 2^40): xor, odd multipliers and xor-shifts are all
+	// invertible modulo 2^40, so distinct ids always give distinct codes.
+	static long scramble(long id, long key)
+	{
+		long x = (id ^ key) & SCRAMBLE_MASK;
+		x = (x * 0x9E3779B97F4A7C15L) & SCRAMBLE_MASK;
+		x ^= x >>> 20;
+		x = (x * 0xC2B2AE3D27D4EB4FL) & SCRAMBLE_MASK;
+		x ^= x >>> 17;
+		return x;
+	}
+}
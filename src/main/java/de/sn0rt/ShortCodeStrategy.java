@@ -0,0 +1,6 @@
+package de.sn0rt;
+
+public enum ShortCodeStrategy
+{
+	RANDOM, SEQUENCE
+}
@@ -3,6 +3,7 @@ package de.sn0rt;
 import io.quarkus.hibernate.orm.panache.PanacheEntity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
 
@@ -10,6 +11,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "short_url")
+@EntityListeners(ShortUrlListener.class)
 public class ShortUrl extends PanacheEntity
 {
 	@NotBlank
@@ -23,7 +25,7 @@ public class ShortUrl extends PanacheEntity
 	@Column(nullable = false)
 	public LocalDateTime createdAt;
 
-	@Column
+	@Column(nullable = false)
 	public Long clickCount;
 
 	public ShortUrl()
@@ -0,0 +1,74 @@
+package de.sn0rt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.Optional;
+
+@ApplicationScoped
+public class ShortUrlCache
+{
+	@ConfigProperty(name = "sn0rt.cache.max-size", defaultValue = "10000")
+	long maxSize;
+
+	@Inject
+	TransactionSynchronizationRegistry transactionRegistry;
+
+	@Inject
+	MeterRegistry registry;
+
+	Cache<String, String> targets;
+
+	@PostConstruct
+	void init()
+	{
+		targets = Caffeine.newBuilder()
+			.maximumSize(maxSize)
+			.recordStats()
+			.build();
+		CaffeineCacheMetrics.monitor(registry, targets, "redirect-targets");
+	}
+
+	public Optional<String> getTarget(String shortCode)
+	{
+		return Optional.ofNullable(targets.getIfPresent(shortCode));
+	}
+
+	public void putTarget(String shortCode, String originalUrl)
+	{
+		targets.put(shortCode, originalUrl);
+	}
+
+	public void invalidate(String shortCode)
+	{
+		targets.invalidate(shortCode);
+
+		// A concurrent redirect may reload the old row before our transaction
+		// commits, so drop the entry again once the change is visible.
+		if (transactionRegistry.getTransactionStatus() == Status.STATUS_ACTIVE)
+		{
+			transactionRegistry.registerInterposedSynchronization(new Synchronization()
+			{
+				@Override
+				public void beforeCompletion()
+				{
+				}
+
+				@Override
+				public void afterCompletion(int status)
+				{
+					targets.invalidate(shortCode);
+				}
+			});
+		}
+	}
+}
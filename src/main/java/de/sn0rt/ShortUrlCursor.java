@@ -0,0 +1,54 @@
+package de.sn0rt;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Position in a keyset-paginated listing: the sort key and id of a row, encoded
+ * as an opaque URL-safe token. Timestamps are kept in microseconds, the
+ * precision of the createdAt column.
+ */
+public record ShortUrlCursor(ShortUrlSort sort, long key, long id)
+{
+	public static ShortUrlCursor of(ShortUrlSort sort, ShortUrlSummary shortUrl)
+	{
+		long key = switch (sort)
+		{
+			case NEWEST -> ChronoUnit.MICROS.between(LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC), shortUrl.createdAt());
+			case CLICKS -> shortUrl.clickCount() == null ? 0L : shortUrl.clickCount();
+		};
+		return new ShortUrlCursor(sort, key, shortUrl.id());
+	}
+
+	/**
+	 * @throws IllegalArgumentException
+	 *             if the token is malformed
+	 */
+	public static ShortUrlCursor decode(String token)
+	{
+		String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII).split(":");
+		if (parts.length != 3)
+		{
+			throw new IllegalArgumentException("Invalid cursor: " + token);
+		}
+		return new ShortUrlCursor(ShortUrlSort.fromParam(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+	}
+
+	public String encode()
+	{
+		String value = sort.param() + ":" + key + ":" + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	Object value()
+	{
+		return switch (sort)
+		{
+			case NEWEST -> LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC).plus(key, ChronoUnit.MICROS);
+			case CLICKS -> key;
+		};
+	}
+}
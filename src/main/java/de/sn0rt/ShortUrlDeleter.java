@@ -0,0 +1,97 @@
+package de.sn0rt;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.transaction.Transactional;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Deletes a short URL together with everything recorded about it. Rows are
+ * deleted in the caller's transaction; caches, in-memory counters and files on
+ * disk are only dropped once that transaction has committed, so a rollback
+ * leaves them in place.
+ */
+@ApplicationScoped
+public class ShortUrlDeleter
+{
+	@Inject
+	ShortUrlRepository repository;
+
+	@Inject
+	ClickEventRepository clickEventRepository;
+
+	@Inject
+	ClickRollupRepository rollupRepository;
+
+	@Inject
+	VisitorSketchRepository visitorSketchRepository;
+
+	@Inject
+	ShortUrlCache cache;
+
+	@Inject
+	QrImageCache qrImageCache;
+
+	@Inject
+	RenderArtifactStore artifactStore;
+
+	@Inject
+	ClickCounter clickCounter;
+
+	@Inject
+	ClickRollups clickRollups;
+
+	@Inject
+	TopLinks topLinks;
+
+	@Inject
+	UniqueVisitors uniqueVisitors;
+
+	@Inject
+	TransactionSynchronizationRegistry transactionRegistry;
+
+	@ConfigProperty(name = "sn0rt.base-url")
+	String baseUrl;
+
+	@Transactional(Transactional.TxType.MANDATORY)
+	public void delete(ShortUrl shortUrl)
+	{
+		String shortCode = shortUrl.shortCode;
+		String originalUrl = shortUrl.originalUrl;
+		repository.delete(shortUrl);
+		clickEventRepository.deleteByShortCode(shortCode);
+		rollupRepository.deleteByShortCode(shortCode);
+		visitorSketchRepository.deleteByShortCode(shortCode);
+
+		transactionRegistry.registerInterposedSynchronization(new Synchronization()
+		{
+			@Override
+			public void beforeCompletion()
+			{
+			}
+
+			@Override
+			public void afterCompletion(int status)
+			{
+				if (status == Status.STATUS_COMMITTED)
+				{
+					discard(shortCode, originalUrl);
+				}
+			}
+		});
+	}
+
+	private void discard(String shortCode, String originalUrl)
+	{
+		cache.invalidate(shortCode);
+		qrImageCache.invalidate(baseUrl + "/" + shortCode);
+		artifactStore.evict(shortCode, originalUrl);
+		clickCounter.discard(shortCode);
+		clickRollups.discard(shortCode);
+		topLinks.discard(shortCode);
+		uniqueVisitors.discard(shortCode);
+	}
+}
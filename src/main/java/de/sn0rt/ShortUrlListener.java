@@ -0,0 +1,13 @@
+package de.sn0rt;
+
+import io.quarkus.arc.Arc;
+import jakarta.persistence.PostPersist;
+
+public class ShortUrlListener
+{
+	@PostPersist
+	void added(ShortUrl shortUrl)
+	{
+		Arc.container().instance(ShortCodeFilter.class).get().put(shortUrl.shortCode);
+	}
+}
@@ -0,0 +1,7 @@
+package de.sn0rt;
+
+import java.util.List;
+
+public record ShortUrlPage(List<ShortUrlSummary> items, ShortUrlCursor next, ShortUrlCursor previous)
+{
+}
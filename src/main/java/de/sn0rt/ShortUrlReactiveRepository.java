@@ -0,0 +1,43 @@
+package de.sn0rt;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.sqlclient.Pool;
+import io.vertx.mutiny.sqlclient.Row;
+import io.vertx.mutiny.sqlclient.RowIterator;
+import io.vertx.mutiny.sqlclient.Tuple;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+
+import java.util.Optional;
+
+/**
+ * Only used with {@code sn0rt.redirect.mode=reactive}. The pool is looked up
+ * when the bean is first used, so the default blocking mode starts without a
+ * reactive datasource URL.
+ */
+@ApplicationScoped
+public class ShortUrlReactiveRepository
+{
+	@Inject
+	Instance<Pool> pool;
+
+	private Pool client;
+
+	@PostConstruct
+	void init()
+	{
+		client = pool.get();
+	}
+
+	public Uni<Optional<String>> findTargetByShortCode(String shortCode)
+	{
+		return client.preparedQuery("select originalUrl from short_url where shortCode = $1")
+			.execute(Tuple.of(shortCode))
+			.map(rows -> {
+				RowIterator<Row> iterator = rows.iterator();
+				return iterator.hasNext() ? Optional.of(iterator.next().getString(0)) : Optional.empty();
+			});
+	}
+}
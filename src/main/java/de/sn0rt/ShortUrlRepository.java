@@ -1,20 +1,251 @@
 package de.sn0rt;
 
 import io.quarkus.hibernate.orm.panache.PanacheRepository;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.panache.common.Parameters;
+import io.quarkus.panache.common.Sort;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
 
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @ApplicationScoped
 public class ShortUrlRepository implements PanacheRepository<ShortUrl>
 {
+	private static final String SELECT_SUMMARY = "select new de.sn0rt.ShortUrlSummary(s.id, s.shortCode, s.originalUrl, s.createdAt, s.clickCount) from ShortUrl s";
+
+	@Inject
+	DataSource dataSource;
+
 	public Optional<ShortUrl> findByShortCode(String shortCode)
 	{
 		return find("shortCode", shortCode).firstResultOptional();
 	}
 
+	/**
+	 * Reads only the target URL on a plain autocommit connection: no
+	 * transaction, no persistence context and no entity. Works on threads
+	 * without a request context, such as the redirect offload executor.
+	 */
+	public Optional<String> findTargetByShortCode(String shortCode)
+	{
+		try (Connection connection = dataSource.getConnection();
+			PreparedStatement statement = connection.prepareStatement("select originalUrl from short_url where shortCode = ?"))
+		{
+			statement.setString(1, shortCode);
+			try (ResultSet resultSet = statement.executeQuery())
+			{
+				return resultSet.next() ? Optional.of(resultSet.getString(1)) : Optional.empty();
+			}
+		}
+		catch (SQLException e)
+		{
+			throw new PersistenceException("Failed to look up short code " + shortCode, e);
+		}
+	}
+
+	/**
+	 * Projection for read paths; needs no transaction since nothing is managed.
+	 */
+	public Optional<ShortUrlSummary> findSummaryByShortCode(String shortCode)
+	{
+		return getEntityManager().createQuery(SELECT_SUMMARY + " where s.shortCode = :shortCode", ShortUrlSummary.class)
+			.setParameter("shortCode", shortCode)
+			.getResultStream()
+			.findFirst();
+	}
+
+	/**
+	 * Returns one page in descending sort order, seeking past the cursor rather
+	 * than skipping rows. With {@code before} the page preceding that cursor is
+	 * returned instead. {@code prefix} optionally filters by short code prefix.
+	 */
+	public ShortUrlPage findPage(ShortUrlSort sort, String prefix, ShortUrlCursor after, ShortUrlCursor before, int limit)
+	{
+		boolean backwards = before != null;
+		ShortUrlCursor cursor = backwards ? before : after;
+		if (cursor != null && cursor.sort() != sort)
+		{
+			cursor = null;
+			backwards = false;
+		}
+
+		List<String> conditions = new ArrayList<>();
+		Parameters parameters = new Parameters();
+		if (cursor != null)
+		{
+			// Row value comparison, so Postgres can seek in the (key, id) index
+			conditions.add("(s." + sort.property + ", s.id) " + (backwards ? ">" : "<") + " (:key, :id)");
+			parameters.and("key", cursor.value()).and("id", cursor.id());
+		}
+		if (prefix != null && !prefix.isBlank())
+		{
+			conditions.add("s.shortCode like :prefix escape '!'");
+			parameters.and("prefix", likePrefix(prefix));
+		}
+		String direction = backwards ? "asc" : "desc";
+		String query = SELECT_SUMMARY
+			+ (conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions))
+			+ " order by s." + sort.property + " " + direction + ", s.id " + direction;
+
+		// One extra row tells whether there is another page
+		TypedQuery<ShortUrlSummary> typedQuery = getEntityManager().createQuery(query, ShortUrlSummary.class).setMaxResults(limit + 1);
+		parameters.map().forEach(typedQuery::setParameter);
+		List<ShortUrlSummary> rows = typedQuery.getResultList();
+		boolean more = rows.size() > limit;
+		List<ShortUrlSummary> items = new ArrayList<>(more ? rows.subList(0, limit) : rows);
+		if (backwards)
+		{
+			Collections.reverse(items);
+		}
+		if (items.isEmpty())
+		{
+			return new ShortUrlPage(items, null, null);
+		}
+
+		ShortUrlCursor first = ShortUrlCursor.of(sort, items.get(0));
+		ShortUrlCursor last = ShortUrlCursor.of(sort, items.get(items.size() - 1));
+		if (backwards)
+		{
+			return new ShortUrlPage(items, last, more ? first : null);
+		}
+		return new ShortUrlPage(items, more ? last : null, cursor != null ? first : null);
+	}
+
+	/**
+	 * Counts matching rows, but stops at {@code max}, so the cost stays bounded
+	 * however large the table grows.
+	 */
+	public long countByPrefix(String prefix, int max)
+	{
+		boolean filtered = prefix != null && !prefix.isBlank();
+		Query query = getEntityManager().createNativeQuery("select count(*) from (select 1 from short_url"
+			+ (filtered ? " where shortCode like ?1 escape '!'" : "") + " limit " + max + ") s");
+		if (filtered)
+		{
+			query.setParameter(1, likePrefix(prefix));
+		}
+		return ((Number)query.getSingleResult()).longValue();
+	}
+
+	private static String likePrefix(String prefix)
+	{
+		return prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+	}
+
+	/**
+	 * @param shortCodes
+	 *            restricts the result to these codes, or {@code null} for all
+	 */
+	public List<ShortUrl> findByIdAfter(long afterId, Collection<String> shortCodes, int limit)
+	{
+		if (shortCodes == null)
+		{
+			return find("id > ?1", Sort.by("id"), afterId).page(0, limit).list();
+		}
+		return find("id > ?1 and shortCode in ?2", Sort.by("id"), afterId, shortCodes).page(0, limit).list();
+	}
+
+	/**
+	 * Hands all matching rows to {@code consumer} in pages ordered by id. Each
+	 * page is loaded in its own short transaction and none is held while the
+	 * consumer runs, so slow consumers such as downloads do not pin a
+	 * connection.
+	 */
+	public void forEachPage(Collection<String> shortCodes, int pageSize, Consumer<List<ShortUrl>> consumer)
+	{
+		long afterId = Long.MIN_VALUE;
+		while (true)
+		{
+			long from = afterId;
+			List<ShortUrl> page = QuarkusTransaction.requiringNew().call(() -> findByIdAfter(from, shortCodes, pageSize));
+			if (page.isEmpty())
+			{
+				return;
+			}
+			consumer.accept(page);
+			afterId = page.get(page.size() - 1).id;
+		}
+	}
+
+	public Stream<String> streamAllShortCodes()
+	{
+		return getEntityManager().createQuery("select s.shortCode from ShortUrl s", String.class)
+			.setHint(HibernateHints.HINT_FETCH_SIZE, 10_000)
+			.setHint(HibernateHints.HINT_READ_ONLY, true)
+			.getResultStream();
+	}
+
+	public Set<String> findExistingShortCodes(Collection<String> shortCodes)
+	{
+		Set<String> existing = new HashSet<>();
+		if (shortCodes.isEmpty())
+		{
+			return existing;
+		}
+
+		getEntityManager().unwrap(Session.class).doWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement("select shortCode from short_url where shortCode = any(?::varchar[])"))
+			{
+				statement.setArray(1, connection.createArrayOf("varchar", shortCodes.toArray(String[]::new)));
+				try (ResultSet resultSet = statement.executeQuery())
+				{
+					while (resultSet.next())
+					{
+						existing.add(resultSet.getString(1));
+					}
+				}
+			}
+		});
+		return existing;
+	}
+
+	public long nextShortCodeBlock()
+	{
+		return ((Number)getEntityManager().createNativeQuery("select nextval('short_code_seq')").getSingleResult()).longValue();
+	}
+
 	public boolean existsByShortCode(String shortCode)
 	{
 		return count("shortCode", shortCode) > 0;
 	}
+
+	public void addClickCounts(Map<String, Long> deltas)
+	{
+		String[] shortCodes = deltas.keySet().toArray(String[]::new);
+		Long[] counts = deltas.values().toArray(Long[]::new);
+
+		// One statement for the whole batch instead of an UPDATE per short code
+		getEntityManager().unwrap(Session.class).doWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement("""
+				update short_url s set clickCount = coalesce(s.clickCount, 0) + d.delta
+				from unnest(?::varchar[], ?::bigint[]) as d(shortCode, delta)
+				where s.shortCode = d.shortCode
+				"""))
+			{
+				statement.setArray(1, connection.createArrayOf("varchar", shortCodes));
+				statement.setArray(2, connection.createArrayOf("bigint", counts));
+				statement.executeUpdate();
+			}
+		});
+	}
 }
@@ -1,22 +1,80 @@
 package de.sn0rt;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.smallrye.common.annotation.RunOnVirtualThread;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
-import java.net.URI;
-import java.util.UUID;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Path("/")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
+@RunOnVirtualThread
 public class ShortUrlResource
 {
+	static final String NDJSON = "application/x-ndjson";
+
 	@Inject
 	ShortUrlRepository repository;
 
+	@Inject
+	ShortUrlDeleter deleter;
+
+	@Inject
+	ShortUrlCache cache;
+
+	@Inject
+	ShortCodeFilter shortCodeFilter;
+
+	@Inject
+	ShortCodeGenerator shortCodeGenerator;
+
+	@Inject
+	ClickCounter clickCounter;
+
+	@Inject
+	ClickRollupRepository rollupRepository;
+
+	@Inject
+	TopLinks topLinks;
+
+	@Inject
+	UniqueVisitors uniqueVisitors;
+
+	@Inject
+	RenderArtifactStore artifactStore;
+
+	@Inject
+	ObjectMapper objectMapper;
+
+	@ConfigProperty(name = "sn0rt.batch.max-size", defaultValue = "10000")
+	int maxBatchSize;
+
+	@ConfigProperty(name = "quarkus.hibernate-orm.jdbc.statement-batch-size", defaultValue = "100")
+	int insertBatchSize;
+
+	@ConfigProperty(name = "sn0rt.stats.max-points", defaultValue = "1440")
+	int maxStatsPoints;
+
 	@POST
 	@Path("/shorten")
 	@Transactional
@@ -33,7 +91,7 @@ public class ShortUrlResource
 		if (request.customCode != null && !request.customCode.isBlank())
 		{
 			shortCode = request.customCode;
-			if (repository.existsByShortCode(shortCode))
+			if (shortCodeFilter.mightContain(shortCode) && repository.existsByShortCode(shortCode))
 			{
 				return Response.status(Response.Status.CONFLICT)
 					.entity(new ErrorResponse("Custom code already exists"))
@@ -42,10 +100,7 @@ public class ShortUrlResource
 		}
 		else
 		{
-			do
-			{
-				shortCode = generateShortCode();
-			} while (repository.existsByShortCode(shortCode));
+			shortCode = shortCodeGenerator.generate();
 		}
 
 		ShortUrl shortUrl = new ShortUrl(shortCode, request.url);
@@ -54,22 +109,252 @@ public class ShortUrlResource
 		return Response.ok(new ShortenResponse(shortCode, shortUrl.originalUrl)).build();
 	}
 
+	@POST
+	@Path("/shorten/batch")
+	public Response shortenUrls(List<ShortenRequest> requests)
+	{
+		return shortenBatch(requests);
+	}
+
+	@POST
+	@Path("/shorten/batch")
+	@Consumes(NDJSON)
+	public Response shortenUrlsNdjson(InputStream body) throws IOException
+	{
+		// Read without a transaction, so a slow upload holds no connection
+		List<ShortenRequest> requests = new ArrayList<>();
+		try (MappingIterator<ShortenRequest> lines = objectMapper.readerFor(ShortenRequest.class).readValues(body))
+		{
+			while (lines.hasNext())
+			{
+				if (requests.size() == maxBatchSize)
+				{
+					return batchTooLarge();
+				}
+				requests.add(lines.next());
+			}
+		}
+		return shortenBatch(requests);
+	}
+
+	private Response shortenBatch(List<ShortenRequest> requests)
+	{
+		if (requests == null || requests.isEmpty())
+		{
+			return Response.status(Response.Status.BAD_REQUEST)
+				.entity(new ErrorResponse("At least one URL is required"))
+				.build();
+		}
+		if (requests.size() > maxBatchSize)
+		{
+			return batchTooLarge();
+		}
+
+		// One query for all custom codes the filter cannot rule out
+		Set<String> customCodes = requests.stream()
+			.filter(request -> request != null && hasCustomCode(request))
+			.map(request -> request.customCode)
+			.filter(shortCodeFilter::mightContain)
+			.collect(Collectors.toSet());
+		Set<String> taken = customCodes.isEmpty() ? new HashSet<>() : QuarkusTransaction.requiringNew().call(() -> repository.findExistingShortCodes(customCodes));
+
+		BatchItemResult[] results = new BatchItemResult[requests.size()];
+		List<Integer> accepted = new ArrayList<>(requests.size());
+		for (int index = 0; index < requests.size(); index++)
+		{
+			ShortenRequest request = requests.get(index);
+			if (request == null || request.url == null || request.url.isBlank())
+			{
+				results[index] = BatchItemResult.invalid(index, "URL is required");
+			}
+			else if (hasCustomCode(request) && !taken.add(request.customCode))
+			{
+				results[index] = BatchItemResult.conflict(index, request.customCode, "Custom code already exists");
+			}
+			else
+			{
+				accepted.add(index);
+			}
+		}
+
+		// Every chunk is one transaction, sent as one JDBC batch on commit, so
+		// no transaction spans the whole batch
+		for (int from = 0; from < accepted.size(); from += insertBatchSize)
+		{
+			List<Integer> chunk = accepted.subList(from, Math.min(from + insertBatchSize, accepted.size()));
+			try
+			{
+				QuarkusTransaction.requiringNew().run(() -> insertChunk(requests, chunk, taken, results));
+			}
+			catch (RuntimeException e)
+			{
+				Log.warnf(e, "Failed to store %d URLs of a batch", chunk.size());
+				for (int index : chunk)
+				{
+					results[index] = BatchItemResult.failed(index, "Could not be stored, please retry");
+				}
+			}
+		}
+
+		BatchShortenResponse response = new BatchShortenResponse(requests.size());
+		for (BatchItemResult result : results)
+		{
+			response.add(result);
+		}
+		return Response.ok(response).build();
+	}
+
+	private void insertChunk(List<ShortenRequest> requests, List<Integer> chunk, Set<String> taken, BatchItemResult[] results)
+	{
+		for (int index : chunk)
+		{
+			ShortenRequest request = requests.get(index);
+			String shortCode;
+			if (hasCustomCode(request))
+			{
+				shortCode = request.customCode;
+			}
+			else
+			{
+				do
+				{
+					shortCode = shortCodeGenerator.generate();
+				} while (!taken.add(shortCode));
+			}
+			repository.persist(new ShortUrl(shortCode, request.url));
+			results[index] = BatchItemResult.created(index, shortCode, request.url);
+		}
+	}
+
+	private static boolean hasCustomCode(ShortenRequest request)
+	{
+		return request.customCode != null && !request.customCode.isBlank();
+	}
+
+	private Response batchTooLarge()
+	{
+		return Response.status(Response.Status.REQUEST_ENTITY_TOO_LARGE)
+			.entity(new ErrorResponse("Batch must not contain more than " + maxBatchSize + " URLs"))
+			.build();
+	}
+
+	/**
+	 * The most clicked links of the last 5 minutes, hour or day, answered from
+	 * memory without touching the database.
+	 */
+	@GET
+	@Path("/stats/top")
+	public Response getTopLinks(@QueryParam("window") @DefaultValue("1h") String window, @QueryParam("limit") @DefaultValue("10") int limit)
+	{
+		TopWindow topWindow = TopWindow.fromParam(window);
+		if (topWindow == null)
+		{
+			return Response.status(Response.Status.BAD_REQUEST)
+				.entity(new ErrorResponse("window must be 5m, 1h or 24h"))
+				.build();
+		}
+		if (limit < 1 || limit > topLinks.capacity())
+		{
+			return Response.status(Response.Status.BAD_REQUEST)
+				.entity(new ErrorResponse("limit must be between 1 and " + topLinks.capacity()))
+				.build();
+		}
+		return Response.ok(new TopLinksResponse(topWindow.param(), topLinks.top(topWindow, limit))).build();
+	}
+
+	/**
+	 * With any of {@code from}, {@code to} (ISO-8601 instants or dates, UTC)
+	 * and {@code granularity} the response also has a click time series, read
+	 * from the rollup tables at one row per bucket.
+	 */
 	@GET
 	@Path("/stats/{shortCode}")
-	@Transactional
-	public Response getStats(@PathParam("shortCode") String shortCode)
+	public Response getStats(@PathParam("shortCode") String shortCode, @QueryParam("from") String from, @QueryParam("to") String to,
+		@QueryParam("granularity") String granularity)
 	{
-		return repository.findByShortCode(shortCode)
-			.map(shortUrl -> Response.ok(new StatsResponse(
-				shortUrl.shortCode,
-				shortUrl.originalUrl,
-				shortUrl.clickCount,
-				shortUrl.createdAt.toString())).build())
+		StatsRange range;
+		try
+		{
+			range = from == null && to == null && granularity == null ? null : statsRange(from, to, granularity);
+		}
+		catch (IllegalArgumentException e)
+		{
+			return Response.status(Response.Status.BAD_REQUEST)
+				.entity(new ErrorResponse(e.getMessage()))
+				.build();
+		}
+
+		return repository.findSummaryByShortCode(shortCode)
+			.map(shortUrl -> {
+				StatsResponse stats = new StatsResponse(
+					shortUrl.shortCode(),
+					shortUrl.originalUrl(),
+					shortUrl.clickCount() + clickCounter.pending(shortCode),
+					shortUrl.createdAt().toString());
+				stats.uniqueVisitors = uniqueVisitors.estimate(shortCode);
+				if (range != null)
+				{
+					stats.granularity = range.granularity().param();
+					stats.from = range.from().toString();
+					stats.to = range.to().toString();
+					stats.series = rollupRepository.findSeries(shortCode, range.granularity(), range.from(), range.to());
+					// Visitor sketches are kept per day, so this covers whole
+					// days
+					stats.uniqueVisitorsInRange = uniqueVisitors.estimate(shortCode, LocalDate.ofInstant(range.from(), ZoneOffset.UTC),
+						LocalDate.ofInstant(range.to().minusNanos(1), ZoneOffset.UTC));
+				}
+				return Response.ok(stats).build();
+			})
 			.orElse(Response.status(Response.Status.NOT_FOUND)
 				.entity(new ErrorResponse("Short URL not found"))
 				.build());
 	}
 
+	private StatsRange statsRange(String from, String to, String granularityParam)
+	{
+		StatsGranularity granularity = granularityParam == null ? StatsGranularity.HOUR : StatsGranularity.fromParam(granularityParam);
+		if (granularity == null)
+		{
+			throw new IllegalArgumentException("granularity must be minute, hour or day");
+		}
+
+		Instant end;
+		Instant start;
+		try
+		{
+			end = to == null ? Instant.now() : parseTime(to);
+			// By default the range ends with the current bucket
+			start = from == null ? granularity.truncate(end).minus(granularity.defaultRange).plus(granularity.size()) : parseTime(from);
+		}
+		catch (DateTimeParseException e)
+		{
+			throw new IllegalArgumentException("from and to must be ISO-8601 instants or dates");
+		}
+		start = granularity.truncate(start);
+		if (!start.isBefore(end))
+		{
+			throw new IllegalArgumentException("from must be before to");
+		}
+		if (granularity.buckets(start, end) > maxStatsPoints)
+		{
+			throw new IllegalArgumentException("At most " + maxStatsPoints + " " + granularity.param() + " buckets per query");
+		}
+		return new StatsRange(granularity, start, end);
+	}
+
+	private static Instant parseTime(String value)
+	{
+		if (value.length() == 10)
+		{
+			return LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant();
+		}
+		return Instant.parse(value);
+	}
+
+	private record StatsRange(StatsGranularity granularity, Instant from, Instant to)
+	{
+	}
+
 	@PUT
 	@Path("/{shortCode}")
 	@Transactional
@@ -84,8 +369,10 @@ public class ShortUrlResource
 
 		return repository.findByShortCode(shortCode)
 			.map(shortUrl -> {
+				artifactStore.evictPdf(shortCode, shortUrl.originalUrl);
 				shortUrl.originalUrl = request.url;
 				repository.persist(shortUrl);
+				cache.invalidate(shortCode);
 				return Response.ok(new ShortenResponse(shortUrl.shortCode, shortUrl.originalUrl)).build();
 			})
 			.orElse(Response.status(Response.Status.NOT_FOUND)
@@ -100,7 +387,7 @@ public class ShortUrlResource
 	{
 		return repository.findByShortCode(shortCode)
 			.map(shortUrl -> {
-				repository.delete(shortUrl);
+				deleter.delete(shortUrl);
 				return Response.noContent().build();
 			})
 			.orElse(Response.status(Response.Status.NOT_FOUND)
@@ -108,11 +395,6 @@ public class ShortUrlResource
 				.build());
 	}
 
-	private String generateShortCode()
-	{
-		return UUID.randomUUID().toString().substring(0, 8);
-	}
-
 	public static class ShortenRequest
 	{
 		public String url;
@@ -136,12 +418,92 @@ public class ShortUrlResource
 		}
 	}
 
+	public static class BatchShortenResponse
+	{
+		public int created;
+		public int conflicts;
+		public int invalid;
+		public int failed;
+		public List<BatchItemResult> results;
+
+		public BatchShortenResponse(int size)
+		{
+			this.results = new ArrayList<>(size);
+		}
+
+		void add(BatchItemResult result)
+		{
+			switch (result.status)
+			{
+				case BatchItemResult.CREATED -> created++;
+				case BatchItemResult.CONFLICT -> conflicts++;
+				case BatchItemResult.FAILED -> failed++;
+				default -> invalid++;
+			}
+			results.add(result);
+		}
+	}
+
+	public static class BatchItemResult
+	{
+		static final String CREATED = "created";
+		static final String CONFLICT = "conflict";
+		static final String INVALID = "invalid";
+		static final String FAILED = "failed";
+
+		public int index;
+		public String status;
+		public String shortCode;
+		public String originalUrl;
+		public String error;
+
+		public BatchItemResult(int index, String status, String shortCode, String originalUrl, String error)
+		{
+			this.index = index;
+			this.status = status;
+			this.shortCode = shortCode;
+			this.originalUrl = originalUrl;
+			this.error = error;
+		}
+
+		static BatchItemResult created(int index, String shortCode, String originalUrl)
+		{
+			return new BatchItemResult(index, CREATED, shortCode, originalUrl, null);
+		}
+
+		static BatchItemResult conflict(int index, String shortCode, String error)
+		{
+			return new BatchItemResult(index, CONFLICT, shortCode, null, error);
+		}
+
+		static BatchItemResult invalid(int index, String error)
+		{
+			return new BatchItemResult(index, INVALID, null, null, error);
+		}
+
+		static BatchItemResult failed(int index, String error)
+		{
+			return new BatchItemResult(index, FAILED, null, null, error);
+		}
+	}
+
 	public static class StatsResponse
 	{
 		public String shortCode;
 		public String originalUrl;
 		public Long clickCount;
 		public String createdAt;
+		public long uniqueVisitors;
+		@JsonInclude(JsonInclude.Include.NON_NULL)
+		public String granularity;
+		@JsonInclude(JsonInclude.Include.NON_NULL)
+		public String from;
+		@JsonInclude(JsonInclude.Include.NON_NULL)
+		public String to;
+		@JsonInclude(JsonInclude.Include.NON_NULL)
+		public List<ClickRollupRepository.StatsPoint> series;
+		@JsonInclude(JsonInclude.Include.NON_NULL)
+		public Long uniqueVisitorsInRange;
 
 		public StatsResponse(String shortCode, String originalUrl, Long clickCount, String createdAt)
 		{
@@ -152,6 +514,18 @@ public class ShortUrlResource
 		}
 	}
 
+	public static class TopLinksResponse
+	{
+		public String window;
+		public List<TopLinks.TopLink> links;
+
+		public TopLinksResponse(String window, List<TopLinks.TopLink> links)
+		{
+			this.window = window;
+			this.links = links;
+		}
+	}
+
 	public static class ErrorResponse
 	{
 		public String error;
@@ -0,0 +1,23 @@
+package de.sn0rt;
+
+public enum ShortUrlSort
+{
+	NEWEST("createdAt"), CLICKS("clickCount");
+
+	final String property;
+
+	ShortUrlSort(String property)
+	{
+		this.property = property;
+	}
+
+	public static ShortUrlSort fromParam(String value)
+	{
+		return "clicks".equalsIgnoreCase(value) ? CLICKS : NEWEST;
+	}
+
+	public String param()
+	{
+		return name().toLowerCase();
+	}
+}
@@ -0,0 +1,14 @@
+package de.sn0rt;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a {@link ShortUrl} row, built straight from the query
+ * result instead of hydrating a managed entity.
+ */
+@RegisterForReflection
+public record ShortUrlSummary(Long id, String shortCode, String originalUrl, LocalDateTime createdAt, Long clickCount)
+{
+}
@@ -0,0 +1,182 @@
+package de.sn0rt;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitter summary (Metwally et al.): tracks at most
+ * {@code capacity} keys. An unseen key replaces the one with the lowest count
+ * and inherits that count as its possible overestimate, so every key seen more
+ * than {@code total / capacity} times is guaranteed to be tracked. Counters are
+ * kept in a min-heap, so updates are O(log capacity). Not thread-safe.
+ */
+public final class SpaceSaving
+{
+	private final Counter[] heap;
+	private final Map<String, Counter> counters;
+	private int size;
+	private long evicted;
+
+	public SpaceSaving(int capacity)
+	{
+		if (capacity < 1)
+		{
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		heap = new Counter[capacity];
+		counters = new HashMap<>(capacity * 2);
+	}
+
+	public void offer(String key, long weight)
+	{
+		Counter counter = counters.get(key);
+		if (counter != null)
+		{
+			counter.count += weight;
+			siftDown(counter.index);
+			return;
+		}
+
+		if (size < heap.length)
+		{
+			counter = new Counter(key, weight, 0, size);
+			heap[size++] = counter;
+			counters.put(key, counter);
+			siftUp(counter.index);
+			return;
+		}
+
+		Counter min = heap[0];
+		evicted = Math.max(evicted, min.count);
+		counters.remove(min.key);
+		min.key = key;
+		min.error = min.count;
+		min.count += weight;
+		counters.put(key, min);
+		siftDown(0);
+	}
+
+	public void remove(String key)
+	{
+		Counter counter = counters.remove(key);
+		if (counter == null)
+		{
+			return;
+		}
+		int index = counter.index;
+		Counter last = heap[--size];
+		heap[size] = null;
+		if (index < size)
+		{
+			heap[index] = last;
+			last.index = index;
+			siftDown(index);
+			siftUp(last.index);
+		}
+	}
+
+	/**
+	 * Hands every tracked key to {@code consumer} with its count and the
+	 * possible overestimate of that count.
+	 */
+	public void forEach(EntryConsumer consumer)
+	{
+		for (int i = 0; i < size; i++)
+		{
+			consumer.accept(heap[i].key, heap[i].count, heap[i].error);
+		}
+	}
+
+	public void clear()
+	{
+		for (int i = 0; i < size; i++)
+		{
+			heap[i] = null;
+		}
+		counters.clear();
+		size = 0;
+		evicted = 0;
+	}
+
+	/**
+	 * Upper bound for the count of a key that is not tracked: the highest count
+	 * evicted so far, zero while nothing was evicted.
+	 */
+	public long untrackedBound()
+	{
+		return evicted;
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	private void siftUp(int index)
+	{
+		Counter counter = heap[index];
+		while (index > 0)
+		{
+			int parent = (index - 1) >>> 1;
+			if (heap[parent].count <= counter.count)
+			{
+				break;
+			}
+			place(heap[parent], index);
+			index = parent;
+		}
+		place(counter, index);
+	}
+
+	private void siftDown(int index)
+	{
+		Counter counter = heap[index];
+		while (true)
+		{
+			int child = 2 * index + 1;
+			if (child >= size)
+			{
+				break;
+			}
+			if (child + 1 < size && heap[child + 1].count < heap[child].count)
+			{
+				child++;
+			}
+			if (counter.count <= heap[child].count)
+			{
+				break;
+			}
+			place(heap[child], index);
+			index = child;
+		}
+		place(counter, index);
+	}
+
+	private void place(Counter counter, int index)
+	{
+		heap[index] = counter;
+		counter.index = index;
+	}
+
+	@FunctionalInterface
+	public interface EntryConsumer
+	{
+		void accept(String key, long count, long error);
+	}
+
+	private static final class Counter
+	{
+		String key;
+		long count;
+		long error;
+		int index;
+
+		Counter(String key, long count, long error, int index)
+		{
+			this.key = key;
+			this.count = count;
+			this.error = error;
+			this.index = index;
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package de.sn0rt;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Bucket size of click statistics. Each has its own rollup table, keyed by
+ * short code and bucket start in UTC.
+ */
+public enum StatsGranularity
+{
+	MINUTE(ChronoUnit.MINUTES, "click_rollup_minute", Duration.ofHours(1)), HOUR(ChronoUnit.HOURS, "click_rollup_hour", Duration.ofDays(1)), DAY(ChronoUnit.DAYS, "click_rollup_day", Duration.ofDays(30));
+
+	final ChronoUnit unit;
+	final String table;
+	// Range of a query that only gives the granularity
+	final Duration defaultRange;
+
+	StatsGranularity(ChronoUnit unit, String table, Duration defaultRange)
+	{
+		this.unit = unit;
+		this.table = table;
+		this.defaultRange = defaultRange;
+	}
+
+	/**
+	 * @return the granularity, or {@code null} if the value names none
+	 */
+	public static StatsGranularity fromParam(String value)
+	{
+		for (StatsGranularity granularity : values())
+		{
+			if (granularity.param().equalsIgnoreCase(value))
+			{
+				return granularity;
+			}
+		}
+		return null;
+	}
+
+	public String param()
+	{
+		return name().toLowerCase();
+	}
+
+	public Instant truncate(Instant time)
+	{
+		return time.truncatedTo(unit);
+	}
+
+	public Duration size()
+	{
+		return unit.getDuration();
+	}
+
+	public long buckets(Instant from, Instant to)
+	{
+		return Duration.between(truncate(from), to).plus(size()).minusNanos(1).dividedBy(size());
+	}
+}
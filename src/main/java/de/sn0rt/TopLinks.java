@@ -0,0 +1,186 @@
+package de.sn0rt;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The most clicked links of the last 5 minutes, hour and day, tracked in memory
+ * with {@link SpaceSaving} summaries. Each window is a ring of time slices and
+ * each slice is striped by thread, so redirects on different threads rarely
+ * share a lock. Memory and query cost depend only on the configured capacity,
+ * not on the number of links or clicks.
+ */
+@ApplicationScoped
+public class TopLinks
+{
+	@ConfigProperty(name = "sn0rt.stats.top.capacity", defaultValue = "200")
+	int capacity;
+
+	@ConfigProperty(name = "sn0rt.stats.top.stripes")
+	Optional<Integer> stripes;
+
+	Map<TopWindow, Slice[][]> rings;
+
+	@PostConstruct
+	void init()
+	{
+		int stripeCount = stripes.orElse(Math.min(8, Runtime.getRuntime().availableProcessors()));
+		rings = new EnumMap<>(TopWindow.class);
+		for (TopWindow window : TopWindow.values())
+		{
+			Slice[][] ring = new Slice[window.slices][stripeCount];
+			for (Slice[] slice : ring)
+			{
+				for (int stripe = 0; stripe < stripeCount; stripe++)
+				{
+					slice[stripe] = new Slice(capacity);
+				}
+			}
+			rings.put(window, ring);
+		}
+	}
+
+	public void increment(String shortCode)
+	{
+		long now = System.currentTimeMillis();
+		for (Map.Entry<TopWindow, Slice[][]> entry : rings.entrySet())
+		{
+			long period = now / entry.getKey().sliceMillis;
+			Slice[][] ring = entry.getValue();
+			Slice[] slice = ring[(int)(period % ring.length)];
+			slice[(int)(Thread.currentThread().threadId() % slice.length)].offer(period, shortCode);
+		}
+	}
+
+	public void discard(String shortCode)
+	{
+		for (Slice[][] ring : rings.values())
+		{
+			for (Slice[] slice : ring)
+			{
+				for (Slice stripe : slice)
+				{
+					stripe.remove(shortCode);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Merges the slices still inside the window. A summary that has evicted
+	 * links may have seen a link it no longer tracks as often as the highest
+	 * count it evicted, so that count is added to the clicks and the error of
+	 * every link it lacks. A link's true clicks therefore lie between
+	 * {@code clicks - error} and {@code clicks}.
+	 */
+	public List<TopLink> top(TopWindow window, int limit)
+	{
+		long current = System.currentTimeMillis() / window.sliceMillis;
+		Map<String, Merged> merged = new HashMap<>();
+		long untracked = 0;
+		for (Slice[] slice : rings.get(window))
+		{
+			for (Slice stripe : slice)
+			{
+				List<Merged> tracked = new ArrayList<>();
+				long bound = stripe.collect(current - window.slices, (key, count, error) -> {
+					Merged link = merged.computeIfAbsent(key, Merged::new);
+					link.clicks += count;
+					link.error += error;
+					tracked.add(link);
+				});
+				untracked += bound;
+				for (Merged link : tracked)
+				{
+					link.covered += bound;
+				}
+			}
+		}
+
+		List<TopLink> top = new ArrayList<>(merged.size());
+		for (Merged link : merged.values())
+		{
+			long missing = untracked - link.covered;
+			top.add(new TopLink(link.shortCode, link.clicks + missing, link.error + missing));
+		}
+		top.sort(Comparator.comparingLong(TopLink::clicks).reversed().thenComparing(TopLink::shortCode));
+		return top.size() > limit ? top.subList(0, limit) : top;
+	}
+
+	public int capacity()
+	{
+		return capacity;
+	}
+
+	public record TopLink(String shortCode, long clicks, long error)
+	{
+	}
+
+	private static final class Merged
+	{
+		final String shortCode;
+		long clicks;
+		long error;
+		// Untracked bounds of the summaries that track this link
+		long covered;
+
+		Merged(String shortCode)
+		{
+			this.shortCode = shortCode;
+		}
+	}
+
+	static final class Slice
+	{
+		private final SpaceSaving summary;
+		private long period = -1;
+
+		Slice(int capacity)
+		{
+			summary = new SpaceSaving(capacity);
+		}
+
+		synchronized void offer(long now, String shortCode)
+		{
+			// The ring wrapped around: this slot now holds a new period
+			if (now > period)
+			{
+				summary.clear();
+				period = now;
+			}
+			else if (now < period)
+			{
+				return;
+			}
+			summary.offer(shortCode, 1);
+		}
+
+		synchronized void remove(String shortCode)
+		{
+			summary.remove(shortCode);
+		}
+
+		/**
+		 * @return the untracked bound of the summary, zero if the slice is
+		 *         outside the window
+		 */
+		synchronized long collect(long after, SpaceSaving.EntryConsumer consumer)
+		{
+			if (period <= after)
+			{
+				return 0;
+			}
+			summary.forEach(consumer);
+			return summary.untrackedBound();
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package de.sn0rt;
+
+import java.time.Duration;
+
+/**
+ * Sliding window of the top links, made of {@code slices} time slices of which
+ * the oldest is dropped whenever a new one starts.
+ */
+public enum TopWindow
+{
+	FIVE_MINUTES("5m", Duration.ofMinutes(1), 5), HOUR("1h", Duration.ofMinutes(5), 12), DAY("24h", Duration.ofHours(1), 24);
+
+	final String param;
+	final long sliceMillis;
+	final int slices;
+
+	TopWindow(String param, Duration slice, int slices)
+	{
+		this.param = param;
+		this.sliceMillis = slice.toMillis();
+		this.slices = slices;
+	}
+
+	/**
+	 * @return the window, or {@code null} if the value names none
+	 */
+	public static TopWindow fromParam(String value)
+	{
+		for (TopWindow window : values())
+		{
+			if (window.param.equalsIgnoreCase(value))
+			{
+				return window;
+			}
+		}
+		return null;
+	}
+
+	public String param()
+	{
+		return param;
+	}
+}
@@ -0,0 +1,137 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.logging.Log;
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimated distinct visitors per short code. A visitor is a hash of client
+ * address and user agent, which is only ever added to a {@link HyperLogLog}
+ * sketch and never stored. New visits collect in per-day sketches in memory and
+ * are merged into the stored lifetime and daily sketches on every flush.
+ */
+@ApplicationScoped
+public class UniqueVisitors
+{
+	@Inject
+	VisitorSketchRepository repository;
+
+	@Inject
+	MeterRegistry registry;
+
+	private final ConcurrentHashMap<Bucket, HyperLogLog> pending = new ConcurrentHashMap<>();
+
+	@PostConstruct
+	void init()
+	{
+		registry.gaugeMapSize("sn0rt.stats.visitors.pending", List.of(), pending);
+	}
+
+	public void add(String shortCode, String clientAddress, String userAgent)
+	{
+		long visitor = Hashing.hash64(clientAddress + '\n' + userAgent);
+		pending.computeIfAbsent(new Bucket(shortCode, LocalDate.now(ZoneOffset.UTC)), bucket -> new HyperLogLog(HyperLogLog.DEFAULT_PRECISION))
+			.add(visitor);
+	}
+
+	/**
+	 * Estimated distinct visitors since the short URL was created, including
+	 * visits not flushed yet.
+	 */
+	public long estimate(String shortCode)
+	{
+		HyperLogLog union = repository.findLifetime(shortCode).orElseGet(() -> new HyperLogLog(HyperLogLog.DEFAULT_PRECISION));
+		mergePending(union, shortCode, LocalDate.MIN, LocalDate.MAX);
+		return union.estimate();
+	}
+
+	/**
+	 * Estimated distinct visitors on the days from {@code from} to {@code to}
+	 * (UTC, both inclusive), counting a visitor seen on several days once.
+	 */
+	public long estimate(String shortCode, LocalDate from, LocalDate to)
+	{
+		HyperLogLog union = repository.findDays(shortCode, from, to);
+		mergePending(union, shortCode, from, to);
+		return union.estimate();
+	}
+
+	private void mergePending(HyperLogLog union, String shortCode, LocalDate from, LocalDate to)
+	{
+		pending.forEach((bucket, sketch) -> {
+			if (bucket.shortCode().equals(shortCode) && !bucket.day().isBefore(from) && !bucket.day().isAfter(to))
+			{
+				union.merge(sketch);
+			}
+		});
+	}
+
+	public void discard(String shortCode)
+	{
+		pending.keySet().removeIf(bucket -> bucket.shortCode().equals(shortCode));
+	}
+
+	@Scheduled(every = "${sn0rt.stats.visitors.flush-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+	void scheduledFlush()
+	{
+		flush();
+	}
+
+	void onShutdown(@Observes ShutdownEvent event)
+	{
+		flush();
+	}
+
+	public synchronized void flush()
+	{
+		// A redirect still holding a removed sketch may add to it after it
+		// was written; that visit is missed, which an estimate can afford
+		Map<Bucket, HyperLogLog> sketches = new HashMap<>();
+		for (Bucket bucket : pending.keySet())
+		{
+			HyperLogLog sketch = pending.remove(bucket);
+			if (sketch != null && !sketch.isEmpty())
+			{
+				sketches.put(bucket, sketch);
+			}
+		}
+
+		if (sketches.isEmpty())
+		{
+			return;
+		}
+
+		Timer.Sample sample = Timer.start(registry);
+		try
+		{
+			QuarkusTransaction.requiringNew().run(() -> repository.merge(sketches));
+			sample.stop(registry.timer("sn0rt.db.query", "query", "mergeVisitorSketches", "client", "jdbc"));
+		}
+		catch (RuntimeException e)
+		{
+			Log.warnf(e, "Failed to flush visitor sketches for %d buckets, retrying on next flush", sketches.size());
+			sketches.forEach((bucket, sketch) -> pending.merge(bucket, sketch, (current, failed) -> {
+				current.merge(failed);
+				return current;
+			}));
+		}
+	}
+
+	record Bucket(String shortCode, LocalDate day)
+	{
+	}
+}
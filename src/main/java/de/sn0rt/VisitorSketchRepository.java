@@ -0,0 +1,183 @@
+package de.sn0rt;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@ApplicationScoped
+public class VisitorSketchRepository
+{
+	@Inject
+	EntityManager entityManager;
+
+	/**
+	 * Merges the sketches into the stored lifetime and daily sketches. Missing
+	 * rows are first inserted empty, so that every row can be locked while
+	 * merging and concurrent flushes, e.g. from other nodes, do not overwrite
+	 * each other, even for a short code seen for the first time.
+	 */
+	public void merge(Map<UniqueVisitors.Bucket, HyperLogLog> sketches)
+	{
+		Map<String, HyperLogLog> lifetime = new HashMap<>();
+		sketches.forEach((bucket, sketch) -> lifetime.computeIfAbsent(bucket.shortCode(), code -> new HyperLogLog(sketch.precision())).merge(sketch));
+
+		String[] shortCodes = lifetime.keySet().stream().sorted().toArray(String[]::new);
+		byte[][] merged = new byte[shortCodes.length][];
+		upsert("""
+			insert into visitor_sketch (shortCode, sketch)
+			select * from unnest(?::varchar[], ?::bytea[])
+			on conflict (shortCode) do nothing
+			""", shortCodes, null, empty(lifetime, shortCodes));
+		Map<String, HyperLogLog> storedLifetime = load("select shortCode, sketch from visitor_sketch where shortCode = any(?::varchar[]) order by shortCode for update",
+			shortCodes, null);
+		for (int i = 0; i < shortCodes.length; i++)
+		{
+			merged[i] = mergeInto(storedLifetime.get(shortCodes[i]), lifetime.get(shortCodes[i]));
+		}
+		upsert("""
+			insert into visitor_sketch (shortCode, sketch)
+			select * from unnest(?::varchar[], ?::bytea[])
+			on conflict (shortCode) do update set sketch = excluded.sketch
+			""", shortCodes, null, merged);
+
+		for (LocalDate day : sketches.keySet().stream().map(UniqueVisitors.Bucket::day).distinct().sorted().toList())
+		{
+			Map<String, HyperLogLog> daily = new HashMap<>();
+			sketches.forEach((bucket, sketch) -> {
+				if (bucket.day().equals(day))
+				{
+					daily.put(bucket.shortCode(), sketch);
+				}
+			});
+			String[] dayCodes = daily.keySet().stream().sorted().toArray(String[]::new);
+			upsert("""
+				insert into visitor_sketch_day (shortCode, bucket, sketch)
+				select d.shortCode, ?::date, d.sketch from unnest(?::varchar[], ?::bytea[]) as d(shortCode, sketch)
+				on conflict (shortCode, bucket) do nothing
+				""", dayCodes, day, empty(daily, dayCodes));
+			Map<String, HyperLogLog> stored = load(
+				"select shortCode, sketch from visitor_sketch_day where shortCode = any(?::varchar[]) and bucket = ? order by shortCode for update", dayCodes, day);
+			byte[][] mergedDay = new byte[dayCodes.length][];
+			for (int i = 0; i < dayCodes.length; i++)
+			{
+				mergedDay[i] = mergeInto(stored.get(dayCodes[i]), daily.get(dayCodes[i]));
+			}
+			upsert("""
+				insert into visitor_sketch_day (shortCode, bucket, sketch)
+				select d.shortCode, ?::date, d.sketch from unnest(?::varchar[], ?::bytea[]) as d(shortCode, sketch)
+				on conflict (shortCode, bucket) do update set sketch = excluded.sketch
+				""", dayCodes, day, mergedDay);
+		}
+	}
+
+	public Optional<HyperLogLog> findLifetime(String shortCode)
+	{
+		return Optional.ofNullable(load("select shortCode, sketch from visitor_sketch where shortCode = any(?::varchar[])", new String[] { shortCode }, null)
+			.get(shortCode));
+	}
+
+	/**
+	 * Merges the daily sketches of the days from {@code from} to {@code to},
+	 * both inclusive.
+	 */
+	public HyperLogLog findDays(String shortCode, LocalDate from, LocalDate to)
+	{
+		HyperLogLog union = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+		entityManager.unwrap(Session.class).doWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(
+				"select sketch from visitor_sketch_day where shortCode = ? and bucket >= ? and bucket <= ?"))
+			{
+				statement.setString(1, shortCode);
+				statement.setObject(2, from);
+				statement.setObject(3, to);
+				try (ResultSet resultSet = statement.executeQuery())
+				{
+					while (resultSet.next())
+					{
+						union.merge(HyperLogLog.fromBytes(resultSet.getBytes(1)));
+					}
+				}
+			}
+		});
+		return union;
+	}
+
+	public void deleteByShortCode(String shortCode)
+	{
+		for (String table : List.of("visitor_sketch", "visitor_sketch_day"))
+		{
+			entityManager.createNativeQuery("delete from " + table + " where shortCode = ?1")
+				.setParameter(1, shortCode)
+				.executeUpdate();
+		}
+	}
+
+	private static byte[][] empty(Map<String, HyperLogLog> sketches, String[] shortCodes)
+	{
+		byte[][] empty = new byte[shortCodes.length][];
+		for (int i = 0; i < shortCodes.length; i++)
+		{
+			empty[i] = new HyperLogLog(sketches.get(shortCodes[i]).precision()).toBytes();
+		}
+		return empty;
+	}
+
+	private static byte[] mergeInto(HyperLogLog stored, HyperLogLog delta)
+	{
+		if (stored == null)
+		{
+			return delta.toBytes();
+		}
+		stored.merge(delta);
+		return stored.toBytes();
+	}
+
+	private Map<String, HyperLogLog> load(String sql, String[] shortCodes, LocalDate day)
+	{
+		Map<String, HyperLogLog> sketches = new HashMap<>();
+		entityManager.unwrap(Session.class).doWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(sql))
+			{
+				statement.setArray(1, connection.createArrayOf("varchar", shortCodes));
+				if (day != null)
+				{
+					statement.setObject(2, day);
+				}
+				try (ResultSet resultSet = statement.executeQuery())
+				{
+					while (resultSet.next())
+					{
+						sketches.put(resultSet.getString(1), HyperLogLog.fromBytes(resultSet.getBytes(2)));
+					}
+				}
+			}
+		});
+		return sketches;
+	}
+
+	private void upsert(String sql, String[] shortCodes, LocalDate day, byte[][] sketches)
+	{
+		entityManager.unwrap(Session.class).doWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(sql))
+			{
+				int parameter = 1;
+				if (day != null)
+				{
+					statement.setObject(parameter++, day);
+				}
+				statement.setArray(parameter++, connection.createArrayOf("varchar", shortCodes));
+				statement.setArray(parameter, connection.createArrayOf("bytea", sketches));
+				statement.executeUpdate();
+			}
+		});
+	}
+}
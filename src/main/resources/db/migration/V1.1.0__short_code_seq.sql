@@ -0,0 +1,3 @@
+    -- Source of ids for generated short codes. Each nextval reserves a block
+    -- of 100 ids (ShortCodeGenerator.BLOCK_SIZE), so the two must match.
+    create sequence short_code_seq start with 1 increment by 100;
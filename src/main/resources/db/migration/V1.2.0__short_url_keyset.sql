@@ -0,0 +1,10 @@
+    update short_url set clickCount = 0 where clickCount is null;
+    alter table short_url alter column clickCount set default 0;
+    alter table short_url alter column clickCount set not null;
+
+    -- Keyset pagination of the admin listing, newest first or by clicks
+    create index short_url_created_idx on short_url (createdAt desc, id desc);
+    create index short_url_clicks_idx on short_url (clickCount desc, id desc);
+
+    -- Short code prefix filter (the unique index does not serve LIKE outside the C collation)
+    create index short_url_code_prefix_idx on short_url (shortCode varchar_pattern_ops);
@@ -0,0 +1,14 @@
+    -- One row per redirect, written in batches with COPY by ClickEventPipeline
+    create table click_event (
+        id bigint generated always as identity,
+        shortCode varchar(255) not null,
+        clickedAt timestamp(6) with time zone not null,
+        referrer varchar(2048),
+        userAgent varchar(512),
+        clientNetwork varchar(64),
+        language varchar(35),
+        weight integer not null default 1,
+        primary key (id)
+    );
+
+    create index click_event_code_idx on click_event (shortCode, clickedAt);
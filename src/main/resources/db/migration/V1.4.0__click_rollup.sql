@@ -0,0 +1,25 @@
+    -- Clicks per short code and bucket (UTC), maintained by ClickRollups
+    create table click_rollup_minute (
+        shortCode varchar(255) not null,
+        bucket timestamp(0) with time zone not null,
+        clicks bigint not null,
+        primary key (shortCode, bucket)
+    );
+
+    create table click_rollup_hour (
+        shortCode varchar(255) not null,
+        bucket timestamp(0) with time zone not null,
+        clicks bigint not null,
+        primary key (shortCode, bucket)
+    );
+
+    create table click_rollup_day (
+        shortCode varchar(255) not null,
+        bucket timestamp(0) with time zone not null,
+        clicks bigint not null,
+        primary key (shortCode, bucket)
+    );
+
+    -- Retention purges by age across all short codes
+    create index click_rollup_minute_bucket_idx on click_rollup_minute (bucket);
+    create index click_rollup_hour_bucket_idx on click_rollup_hour (bucket);
@@ -0,0 +1,13 @@
+    -- HyperLogLog sketches of distinct visitors, see HyperLogLog#toBytes
+    create table visitor_sketch (
+        shortCode varchar(255) not null,
+        sketch bytea not null,
+        primary key (shortCode)
+    );
+
+    create table visitor_sketch_day (
+        shortCode varchar(255) not null,
+        bucket date not null,
+        sketch bytea not null,
+        primary key (shortCode, bucket)
+    );
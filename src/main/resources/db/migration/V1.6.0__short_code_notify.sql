@@ -0,0 +1,10 @@
+    -- Publishes every new short code to all instances, see ShortCodeFilter
+    create function notify_short_code() returns trigger as $$
+    begin
+        perform pg_notify('short_code_added', new.shortCode);
+        return null;
+    end;
+    $$ language plpgsql;
+
+    create trigger short_url_notify after insert on short_url
+        for each row execute function notify_short_code();
@@ -4,12 +4,25 @@ import io.quarkus.test.junit.QuarkusTest;
 import io.restassured.http.ContentType;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.CoreMatchers.*;
+import static org.junit.jupiter.api.Assertions.*;
 
 @QuarkusTest
 class AdminPageTest
@@ -71,11 +84,50 @@ class AdminPageTest
 			.body(containsString("https://example.com/test1"))
 			.body(containsString("https://example.com/test2"))
 			.body(containsString("0 clicks"))
-			.body(containsString("data:image/png;base64,")) // QR code present
+			.body(containsString("/admin/qr/code1.png")) // QR code image
 			.body(containsString("/admin/qr/code1/pdf")) // PDF download link
 			.body(containsString("/admin/qr/code2/pdf"));
 	}
 
+	@Test
+	void testGetAdminPageFiltersByShortCodePrefix()
+	{
+		// given
+		createShortUrl("https://example.com/spring", "spring-sale");
+		createShortUrl("https://example.com/summer", "summer-sale");
+
+		// when & then
+		given()
+			.auth().basic("admin", "admin")
+			.queryParam("q", "spring")
+			.queryParam("sort", "clicks")
+			.when()
+			.get("/admin")
+			.then()
+			.statusCode(200)
+			.body(containsString("All Short URLs (1)"))
+			.body(containsString("/spring-sale"))
+			.body(not(containsString("/summer-sale")))
+			.body(containsString("<option value=\"clicks\" selected>"));
+	}
+
+	@Test
+	void testGetAdminPageIgnoresInvalidCursor()
+	{
+		// given
+		createShortUrl("https://example.com/test1", "code1");
+
+		// when & then
+		given()
+			.auth().basic("admin", "admin")
+			.queryParam("after", "not-a-cursor")
+			.when()
+			.get("/admin")
+			.then()
+			.statusCode(200)
+			.body(containsString("/code1"));
+	}
+
 	@Test
 	void testGetAdminPageDisplaysClickCounts()
 	{
@@ -380,12 +432,325 @@ class AdminPageTest
 			.extract()
 			.asString();
 
-		// then - verify QR code is present as base64 image
-		assert html.contains("data:image/png;base64,");
+		// then - verify QR code is loaded lazily instead of being inlined
+		assert html.contains("src=\"/admin/qr/qrtest.png\"");
+		assert html.contains("loading=\"lazy\"");
+		assert !html.contains("data:image/png;base64,");
 		assert html.contains("qr-code-image");
 		assert html.contains("/admin/qr/qrtest/pdf");
 	}
 
+	@Test
+	void testQrCodePng()
+	{
+		// given
+		createShortUrl("https://example.com/pngtest", "pngcode");
+
+		// when & then
+		byte[] png = given()
+			.auth().basic("admin", "admin")
+			.when()
+			.get("/admin/qr/pngcode.png")
+			.then()
+			.statusCode(200)
+			.contentType("image/png")
+			.header("ETag", notNullValue())
+			.header("Cache-Control", containsString("max-age"))
+			.extract()
+			.asByteArray();
+
+		// then
+		assert png[0] == (byte)0x89 && png[1] == 'P' && png[2] == 'N' && png[3] == 'G';
+	}
+
+	@Test
+	void testQrCodePngNotModified()
+	{
+		// given
+		createShortUrl("https://example.com/etagtest", "etagcode");
+		String etag = given()
+			.auth().basic("admin", "admin")
+			.when()
+			.get("/admin/qr/etagcode.png")
+			.then()
+			.statusCode(200)
+			.extract()
+			.header("ETag");
+
+		// when & then
+		given()
+			.auth().basic("admin", "admin")
+			.header("If-None-Match", etag)
+			.when()
+			.get("/admin/qr/etagcode.png")
+			.then()
+			.statusCode(304)
+			.header("ETag", equalTo(etag));
+	}
+
+	@Test
+	void testQrCodePngOfDeletedCodeIsNotFound()
+	{
+		// given
+		createShortUrl("https://example.com/gonetest", "gonecode");
+		String etag = given()
+			.auth().basic("admin", "admin")
+			.when()
+			.get("/admin/qr/gonecode.png")
+			.then()
+			.statusCode(200)
+			.extract()
+			.header("ETag");
+		given()
+			.auth().basic("admin", "admin")
+			.redirects().follow(false)
+			.when()
+			.post("/admin/delete/gonecode")
+			.then()
+			.statusCode(303);
+
+		// when & then
+		given()
+			.auth().basic("admin", "admin")
+			.header("If-None-Match", etag)
+			.when()
+			.get("/admin/qr/gonecode.png")
+			.then()
+			.statusCode(404);
+	}
+
+	@Test
+	void testQrCodeSvg()
+	{
+		// given
+		createShortUrl("https://example.com/svgtest", "svgcode");
+
+		// when & then
+		given()
+			.auth().basic("admin", "admin")
+			.when()
+			.get("/admin/qr/svgcode.svg")
+			.then()
+			.statusCode(200)
+			.contentType("image/svg+xml")
+			.body(startsWith("<svg"));
+	}
+
+	@Test
+	void testQrCodeImageNotFound()
+	{
+		// given
+		String nonExistentCode = "notfound";
+
+		// when & then
+		given()
+			.auth().basic("admin", "admin")
+			.when()
+			.get("/admin/qr/" + nonExistentCode + ".png")
+			.then()
+			.statusCode(404);
+	}
+
+	@Test
+	void testExportQrCodesZip() throws IOException
+	{
+		// given
+		createShortUrl("https://example.com/one", "zip1");
+		createShortUrl("https://example.com/two", "zip2");
+		createShortUrl("https://example.com/three", "zip3");
+
+		// when
+		byte[] zip = given()
+			.auth().basic("admin", "admin")
+			.queryParam("code", "zip1", "zip3")
+			.when()
+			.get("/admin/qr/export")
+			.then()
+			.statusCode(200)
+			.contentType("application/zip")
+			.header("Content-Disposition", containsString("qr-codes.zip"))
+			.extract()
+			.asByteArray();
+
+		// then
+		Map<String, byte[]> entries = unzip(zip);
+		assertEquals(List.of("manifest.csv", "qr-zip1.png", "qr-zip3.png"), List.copyOf(entries.keySet()));
+		String manifest = new String(entries.get("manifest.csv"), StandardCharsets.UTF_8);
+		assertTrue(manifest.startsWith("shortCode,shortUrl,originalUrl,file\n"));
+		assertTrue(manifest.contains("zip1,http://localhost:8080/zip1,https://example.com/one,qr-zip1.png"));
+		assertFalse(manifest.contains("zip2"));
+		assertEquals((byte)0x89, entries.get("qr-zip1.png")[0]);
+	}
+
+	@Test
+	void testExportAllQrCodesAsSvg() throws IOException
+	{
+		// given
+		createShortUrl("https://example.com/one", "svg1");
+		createShortUrl("https://example.com/two", "svg2");
+
+		// when
+		byte[] zip = given()
+			.auth().basic("admin", "admin")
+			.queryParam("format", "svg")
+			.when()
+			.get("/admin/qr/export")
+			.then()
+			.statusCode(200)
+			.extract()
+			.asByteArray();
+
+		// then
+		Map<String, byte[]> entries = unzip(zip);
+		assertEquals(List.of("manifest.csv", "qr-svg1.svg", "qr-svg2.svg"), List.copyOf(entries.keySet()));
+		assertTrue(new String(entries.get("qr-svg1.svg"), StandardCharsets.UTF_8).startsWith("<svg"));
+	}
+
+	@Test
+	void testExportQrCodesRejectsUnknownFormat()
+	{
+		// when & then
+		given()
+			.auth().basic("admin", "admin")
+			.queryParam("format", "gif")
+			.when()
+			.get("/admin/qr/export")
+			.then()
+			.statusCode(400);
+	}
+
+	@Test
+	void testExportLinksAsCsv()
+	{
+		// given
+		createShortUrl("https://example.com/a,b", "csv1");
+		createShortUrl("https://example.com/plain", "csv2");
+
+		// when
+		String csv = given()
+			.auth().basic("admin", "admin")
+			.when()
+			.get("/admin/export")
+			.then()
+			.statusCode(200)
+			.header("Content-Disposition", containsString("sn0rt-links.csv"))
+			.extract()
+			.asString();
+
+		// then
+		String[] lines = csv.split("\n");
+		assertEquals("shortCode,originalUrl,createdAt,clickCount", lines[0]);
+		assertEquals(3, lines.length);
+		assertTrue(lines[1].startsWith("csv1,\"https://example.com/a,b\","));
+		assertTrue(lines[2].startsWith("csv2,https://example.com/plain,"));
+		assertTrue(lines[2].endsWith(",0"));
+	}
+
+	@Test
+	void testExportLinksAsNdjsonWithStats()
+	{
+		// given
+		createShortUrl("https://example.com/json", "json1");
+		given().redirects().follow(false).when().get("/json1").then().statusCode(303);
+
+		// when
+		String ndjson = given()
+			.auth().basic("admin", "admin")
+			.queryParam("format", "ndjson")
+			.queryParam("stats", true)
+			.when()
+			.get("/admin/export")
+			.then()
+			.statusCode(200)
+			.extract()
+			.asString();
+
+		// then
+		assertTrue(ndjson.endsWith("}\n"));
+		String[] lines = ndjson.split("\n");
+		assertEquals(1, lines.length);
+		assertTrue(lines[0].startsWith("{\"shortCode\":\"json1\",\"originalUrl\":\"https://example.com/json\""));
+		assertTrue(lines[0].contains("\"clickCount\":1"));
+		assertTrue(lines[0].contains("\"uniqueVisitors\":0"));
+	}
+
+	@Test
+	void testDownloadLabelSheet() throws IOException
+	{
+		// given
+		createShortUrl("https://example.com/one", "label1");
+		createShortUrl("https://example.com/two", "label2");
+		createShortUrl("https://example.com/three", "label3");
+
+		// when
+		byte[] pdf = given()
+			.auth().basic("admin", "admin")
+			.queryParam("columns", 2)
+			.queryParam("rows", 2)
+			.queryParam("copies", 2)
+			.when()
+			.get("/admin/qr/labels")
+			.then()
+			.statusCode(200)
+			.contentType("application/pdf")
+			.header("Content-Disposition", containsString("qr-labels.pdf"))
+			.extract()
+			.asByteArray();
+
+		// then - six labels on four per page, one image per short code
+		try (PDDocument document = Loader.loadPDF(pdf))
+		{
+			assertEquals(2, document.getNumberOfPages());
+			assertEquals(2, count(document.getPage(0).getResources().getXObjectNames()));
+			String text = new PDFTextStripper().getText(document);
+			assertTrue(text.contains("label1"));
+			assertTrue(text.contains("label3"));
+			assertTrue(text.contains("https://example.com/two"));
+		}
+	}
+
+	@Test
+	void testDownloadLabelSheetWithNonLatinTarget() throws IOException
+	{
+		// given
+		createShortUrl("https://example.com/привет/東京", "label-intl");
+
+		// when
+		byte[] pdf = given()
+			.auth().basic("admin", "admin")
+			.queryParam("code", "label-intl")
+			.when()
+			.get("/admin/qr/labels")
+			.then()
+			.statusCode(200)
+			.extract()
+			.asByteArray();
+
+		// then
+		try (PDDocument document = Loader.loadPDF(pdf))
+		{
+			String text = new PDFTextStripper().getText(document);
+			assertTrue(text.contains("label-intl"));
+			assertTrue(text.contains("https://example.com/??????/??"));
+		}
+	}
+
+	@Test
+	void testDownloadLabelSheetRejectsInvalidGrid()
+	{
+		// given
+		int columns = 0;
+
+		// when & then
+		given()
+			.auth().basic("admin", "admin")
+			.queryParam("columns", columns)
+			.when()
+			.get("/admin/qr/labels")
+			.then()
+			.statusCode(400);
+	}
+
 	@Test
 	void testAdminPageRequiresAuthentication()
 	{
@@ -417,6 +782,29 @@ class AdminPageTest
 
 	// Helper methods
 
+	private static int count(Iterable<?> items)
+	{
+		int count = 0;
+		for (Object ignored : items)
+		{
+			count++;
+		}
+		return count;
+	}
+
+	private static Map<String, byte[]> unzip(byte[] zip) throws IOException
+	{
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip)))
+		{
+			for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry())
+			{
+				entries.put(entry.getName(), in.readAllBytes());
+			}
+		}
+		return entries;
+	}
+
 	@Transactional
 	void createShortUrl(String originalUrl, String shortCode)
 	{
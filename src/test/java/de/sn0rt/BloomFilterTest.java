@@ -0,0 +1,62 @@
+package de.sn0rt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest
+{
+	@Test
+	void testNoFalseNegatives()
+	{
+		// given
+		BloomFilter filter = BloomFilter.create(10_000, 0.01);
+
+		// when
+		for (int i = 0; i < 10_000; i++)
+		{
+			filter.put("code" + i);
+		}
+
+		// then
+		for (int i = 0; i < 10_000; i++)
+		{
+			assertTrue(filter.mightContain("code" + i));
+		}
+	}
+
+	@Test
+	void testFalsePositiveRateIsNearConfiguredRate()
+	{
+		// given
+		BloomFilter filter = BloomFilter.create(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++)
+		{
+			filter.put("code" + i);
+		}
+
+		// when
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++)
+		{
+			if (filter.mightContain("missing" + i))
+			{
+				falsePositives++;
+			}
+		}
+
+		// then
+		assertTrue(falsePositives < 2_000, "false positive rate too high: " + falsePositives / 100_000.0);
+	}
+
+	@Test
+	void testEmptyFilterContainsNothing()
+	{
+		// given
+		BloomFilter filter = BloomFilter.create(1_000, 0.01);
+
+		// when & then
+		assertFalse(filter.mightContain("anything"));
+		assertFalse(filter.mightContain(""));
+	}
+}
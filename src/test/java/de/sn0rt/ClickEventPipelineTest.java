@@ -0,0 +1,96 @@
+package de.sn0rt;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class ClickEventPipelineTest
+{
+	@Inject
+	ShortUrlRepository repository;
+
+	@Inject
+	ClickEventRepository clickEventRepository;
+
+	@Inject
+	ClickEventPipeline clickEvents;
+
+	@Inject
+	EntityManager entityManager;
+
+	@AfterEach
+	@Transactional
+	void cleanup()
+	{
+		repository.deleteAll();
+		entityManager.createNativeQuery("delete from click_event").executeUpdate();
+	}
+
+	@Test
+	void testRedirectsAreRecordedAsEvents()
+	{
+		// given
+		given()
+			.contentType(ContentType.JSON)
+			.body("{\"url\":\"https://example.com/events\",\"customCode\":\"events\"}")
+			.when()
+			.post("/shorten")
+			.then()
+			.statusCode(200);
+
+		// when
+		for (int i = 0; i < 3; i++)
+		{
+			given()
+				.redirects().follow(false)
+				.header("Referer", "https://news.example.com/\"quoted\",post")
+				.header("User-Agent", "JUnit")
+				.header("Accept-Language", "de-DE,de;q=0.9")
+				.when()
+				.get("/events")
+				.then()
+				.statusCode(303);
+		}
+		clickEvents.flush();
+
+		// then
+		assertEquals(3, QuarkusTransaction.requiringNew().call(() -> clickEventRepository.countByShortCode("events")));
+		Object[] row = QuarkusTransaction.requiringNew().call(() -> (Object[])entityManager
+			.createNativeQuery("select referrer, userAgent, clientNetwork, language from click_event where shortCode = 'events' limit 1")
+			.getSingleResult());
+		assertEquals("https://news.example.com/\"quoted\",post", row[0]);
+		assertEquals("JUnit", row[1]);
+		assertNotNull(row[2]);
+		assertEquals("de-de", row[3]);
+	}
+
+	@Test
+	void testDeleteRemovesEvents()
+	{
+		// given
+		given()
+			.contentType(ContentType.JSON)
+			.body("{\"url\":\"https://example.com/gone\",\"customCode\":\"gone\"}")
+			.when()
+			.post("/shorten")
+			.then()
+			.statusCode(200);
+		given().redirects().follow(false).when().get("/gone").then().statusCode(303);
+		clickEvents.flush();
+
+		// when
+		given().when().delete("/gone").then().statusCode(204);
+
+		// then
+		assertEquals(0, QuarkusTransaction.requiringNew().call(() -> clickEventRepository.countByShortCode("gone")));
+	}
+}
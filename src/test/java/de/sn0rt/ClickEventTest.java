@@ -0,0 +1,44 @@
+package de.sn0rt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickEventTest
+{
+	@Test
+	void testClientAddressIsReducedToItsNetwork()
+	{
+		// when & then
+		assertEquals("203.0.113.0/24", ClickEvent.network("203.0.113.77"));
+		assertEquals("2001:db8:abcd::/48", ClickEvent.network("2001:db8:abcd:12:0:0:0:1"));
+		assertEquals("2001:db8::/48", ClickEvent.network("2001:db8::1"));
+		assertEquals("::/48", ClickEvent.network("::1"));
+		assertNull(ClickEvent.network(null));
+	}
+
+	@Test
+	void testPreferredLanguageIsKept()
+	{
+		// when & then
+		assertEquals("de-de", ClickEvent.language("de-DE,de;q=0.9,en;q=0.8"));
+		assertEquals("en", ClickEvent.language("en;q=0.5"));
+		assertNull(ClickEvent.language("*"));
+		assertNull(ClickEvent.language(null));
+	}
+
+	@Test
+	void testLongHeadersAreTruncated()
+	{
+		// given
+		String userAgent = "x".repeat(1000);
+
+		// when
+		ClickEvent event = ClickEvent.of("abc", "", userAgent, "10.0.0.1", null);
+
+		// then
+		assertEquals(ClickEvent.MAX_USER_AGENT, event.userAgent().length());
+		assertNull(event.referrer());
+		assertEquals(1, event.weight());
+	}
+}
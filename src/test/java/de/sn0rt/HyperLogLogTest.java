@@ -0,0 +1,89 @@
+package de.sn0rt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest
+{
+	@Test
+	void testEstimateIsCloseToDistinctCount()
+	{
+		// given
+		HyperLogLog sketch = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+
+		// when
+		for (int repeat = 0; repeat < 3; repeat++)
+		{
+			for (int i = 0; i < 100_000; i++)
+			{
+				sketch.add(Hashing.hash64("visitor" + i));
+			}
+		}
+
+		// then
+		assertEquals(100_000, sketch.estimate(), 100_000 * 0.05);
+	}
+
+	@Test
+	void testSmallCountsAreNearlyExact()
+	{
+		// given
+		HyperLogLog sketch = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+
+		// when
+		for (int i = 0; i < 20; i++)
+		{
+			sketch.add(Hashing.hash64("visitor" + i));
+			sketch.add(Hashing.hash64("visitor" + i));
+		}
+
+		// then
+		assertEquals(20, sketch.estimate());
+	}
+
+	@Test
+	void testMergeCountsTheUnion()
+	{
+		// given
+		HyperLogLog monday = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+		HyperLogLog tuesday = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+		for (int i = 0; i < 30_000; i++)
+		{
+			monday.add(Hashing.hash64("visitor" + i));
+			tuesday.add(Hashing.hash64("visitor" + (i + 20_000)));
+		}
+
+		// when
+		monday.merge(tuesday);
+
+		// then
+		assertEquals(50_000, monday.estimate(), 50_000 * 0.05);
+	}
+
+	@Test
+	void testBytesRoundTrip()
+	{
+		// given
+		HyperLogLog small = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+		HyperLogLog large = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+		for (int i = 0; i < 10_000; i++)
+		{
+			if (i < 10)
+			{
+				small.add(Hashing.hash64("visitor" + i));
+			}
+			large.add(Hashing.hash64("visitor" + i));
+		}
+
+		// when
+		byte[] smallBytes = small.toBytes();
+		byte[] largeBytes = large.toBytes();
+
+		// then
+		assertEquals(2 + 10 * 3, smallBytes.length);
+		assertEquals(2 + 2048, largeBytes.length);
+		assertEquals(small.estimate(), HyperLogLog.fromBytes(smallBytes).estimate());
+		assertEquals(large.estimate(), HyperLogLog.fromBytes(largeBytes).estimate());
+	}
+}
@@ -0,0 +1,95 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveClicksTest
+{
+	LiveClicks liveClicks;
+
+	@BeforeEach
+	void setUp()
+	{
+		liveClicks = new LiveClicks();
+		liveClicks.maxCodes = 3;
+		liveClicks.registry = new SimpleMeterRegistry();
+		liveClicks.init();
+	}
+
+	@Test
+	void testClicksAreSentAsCoalescedDeltas()
+	{
+		// given
+		AssertSubscriber<LiveClicks.Update> subscriber = liveClicks.subscribe().subscribe().withSubscriber(AssertSubscriber.create(1));
+		liveClicks.increment("abc");
+		liveClicks.increment("abc");
+		liveClicks.increment("xyz");
+
+		// when
+		liveClicks.tick();
+
+		// then
+		assertEquals(1, subscriber.getItems().size());
+		assertEquals(new LiveClicks.Update(Map.of("abc", 2L, "xyz", 1L), false), subscriber.getItems().get(0));
+	}
+
+	@Test
+	void testSlowSubscriberGetsMergedUpdate()
+	{
+		// given
+		AssertSubscriber<LiveClicks.Update> subscriber = liveClicks.subscribe().subscribe().withSubscriber(AssertSubscriber.create(0));
+		liveClicks.increment("abc");
+		liveClicks.tick();
+		liveClicks.increment("abc");
+		liveClicks.increment("xyz");
+		liveClicks.tick();
+
+		// when
+		subscriber.request(1);
+		liveClicks.tick();
+
+		// then
+		assertEquals(1, subscriber.getItems().size());
+		assertEquals(Map.of("abc", 2L, "xyz", 1L), subscriber.getItems().get(0).clicks());
+	}
+
+	@Test
+	void testSubscriberTooFarBehindIsToldToResync()
+	{
+		// given
+		AssertSubscriber<LiveClicks.Update> subscriber = liveClicks.subscribe().subscribe().withSubscriber(AssertSubscriber.create(0));
+		for (String shortCode : new String[] { "a", "b", "c", "d" })
+		{
+			liveClicks.increment(shortCode);
+		}
+		liveClicks.tick();
+
+		// when
+		subscriber.request(1);
+		liveClicks.tick();
+
+		// then
+		assertTrue(subscriber.getItems().get(0).resync());
+		assertTrue(subscriber.getItems().get(0).clicks().isEmpty());
+	}
+
+	@Test
+	void testNothingIsCountedWithoutSubscribers()
+	{
+		// given
+		liveClicks.increment("abc");
+
+		// when
+		AssertSubscriber<LiveClicks.Update> subscriber = liveClicks.subscribe().subscribe().withSubscriber(AssertSubscriber.create(1));
+		liveClicks.tick();
+
+		// then
+		assertTrue(subscriber.getItems().isEmpty());
+	}
+}
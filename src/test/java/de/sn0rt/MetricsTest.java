@@ -0,0 +1,85 @@
+package de.sn0rt;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.containsString;
+
+@QuarkusTest
+class MetricsTest
+{
+	@Inject
+	ShortUrlRepository repository;
+
+	@AfterEach
+	@Transactional
+	void cleanup()
+	{
+		repository.deleteAll();
+	}
+
+	@Test
+	void testRedirectMetrics()
+	{
+		// given
+		String shortCode = given()
+			.contentType(ContentType.JSON)
+			.body("{\"url\":\"https://example.com/metrics\"}")
+			.when()
+			.post("/shorten")
+			.then()
+			.extract()
+			.path("shortCode");
+
+		// when
+		given().redirects().follow(false).when().get("/" + shortCode).then().statusCode(303);
+		given().redirects().follow(false).when().get("/" + shortCode).then().statusCode(303);
+
+		// then
+		given()
+			.when()
+			.get("/q/metrics")
+			.then()
+			.statusCode(200)
+			.body(containsString("sn0rt_redirects_total{result=\"miss\"}"))
+			.body(containsString("sn0rt_redirects_total{result=\"hit\"}"))
+			.body(containsString("sn0rt_db_query_seconds_bucket"))
+			.body(containsString("http_server_requests_seconds_bucket"));
+	}
+
+	@Test
+	void testRenderMetrics()
+	{
+		// given
+		createShortUrl("https://example.com/render", "render");
+
+		// when
+		given()
+			.auth().basic("admin", "admin")
+			.when()
+			.get("/admin/qr/render/pdf")
+			.then()
+			.statusCode(200);
+
+		// then
+		given()
+			.when()
+			.get("/q/metrics")
+			.then()
+			.statusCode(200)
+			.body(containsString("sn0rt_qr_render_seconds_count{stage=\"image\"}"))
+			.body(containsString("sn0rt_pdf_render_seconds_count"))
+			.body(containsString("sn0rt_pdf_bytes_count"));
+	}
+
+	@Transactional
+	void createShortUrl(String originalUrl, String shortCode)
+	{
+		repository.persist(new ShortUrl(shortCode, originalUrl));
+	}
+}
@@ -148,6 +148,22 @@ class PdfServiceTest
 		assertTrue(pdfText.contains("https://example.com/path?query=test&foo=bar"));
 	}
 
+	@Test
+	void testGenerateQrCodePdfWithNonLatinUrl() throws IOException
+	{
+		// given
+		ShortUrl shortUrl = new ShortUrl("intl", "https://example.com/привет?q=café");
+		String fullUrl = "http://localhost:8080/intl";
+
+		// when
+		byte[] pdfBytes = pdfService.generateQrCodePdf(shortUrl, fullUrl);
+
+		// then
+		String pdfText = extractTextFromPdf(pdfBytes);
+		assertTrue(pdfText.contains("Short Code: intl"));
+		assertTrue(pdfText.contains("Redirects to: https://example.com/???????q=café"));
+	}
+
 	@Test
 	void testGenerateQrCodePdfCreatesValidDocumentEachTime() throws IOException
 	{
@@ -0,0 +1,94 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nayuki.qrcodegen.QrCode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QRCodeServiceTest
+{
+	QRCodeService qrCodeService;
+
+	@BeforeEach
+	void setUp()
+	{
+		qrCodeService = new QRCodeService();
+		qrCodeService.registry = new SimpleMeterRegistry();
+		qrCodeService.init();
+	}
+
+	@Test
+	void testPngMatchesModules() throws IOException
+	{
+		// given
+		QrCode qr = qrCodeService.generateQrCode("http://localhost:8080/abc12345");
+		int scale = 3;
+		int border = 2;
+
+		// when
+		byte[] png = qrCodeService.toPng(qr, scale, border);
+
+		// then
+		BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+		int size = (qr.size + border * 2) * scale;
+		assertEquals(size, image.getWidth());
+		assertEquals(size, image.getHeight());
+		for (int y = 0; y < size; y++)
+		{
+			for (int x = 0; x < size; x++)
+			{
+				boolean dark = qr.getModule(x / scale - border, y / scale - border);
+				assertEquals(dark ? 0xFF000000 : 0xFFFFFFFF, image.getRGB(x, y), "pixel " + x + "," + y);
+			}
+		}
+	}
+
+	@Test
+	void testImageMatchesModules()
+	{
+		// given
+		QrCode qr = qrCodeService.generateQrCode("https://sn0rt.example.com/a-considerably-longer-custom-short-code");
+		int scale = 5;
+		int border = 4;
+
+		// when
+		BufferedImage image = qrCodeService.toImage(qr, scale, border);
+
+		// then
+		int size = (qr.size + border * 2) * scale;
+		assertEquals(size, image.getWidth());
+		for (int y = 0; y < size; y++)
+		{
+			for (int x = 0; x < size; x++)
+			{
+				boolean dark = qr.getModule(x / scale - border, y / scale - border);
+				assertEquals(dark ? 0xFF000000 : 0xFFFFFFFF, image.getRGB(x, y), "pixel " + x + "," + y);
+			}
+		}
+	}
+
+	@Test
+	void testSvgDrawsModuleRuns()
+	{
+		// given
+		QrCode qr = qrCodeService.generateQrCode("http://localhost:8080/abc12345");
+
+		// when
+		String svg = qrCodeService.toSvg(qr, 4, 2);
+
+		// then
+		int size = qr.size + 4;
+		assertTrue(svg.startsWith("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + size * 4 + "\""));
+		assertTrue(svg.contains("viewBox=\"0 0 " + size + " " + size + "\""));
+		// The top left finder pattern starts with a run of seven dark modules
+		assertTrue(svg.contains("M2,2h7v1h-7z"));
+		assertTrue(svg.endsWith("</svg>"));
+	}
+}
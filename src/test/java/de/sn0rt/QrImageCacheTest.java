@@ -0,0 +1,71 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QrImageCacheTest
+{
+	QrImageCache qrImageCache;
+
+	@BeforeEach
+	void setUp()
+	{
+		QRCodeService qrCodeService = new QRCodeService();
+		qrCodeService.registry = new SimpleMeterRegistry();
+		qrCodeService.init();
+		qrImageCache = new QrImageCache();
+		qrImageCache.qrCodeService = qrCodeService;
+		qrImageCache.registry = new SimpleMeterRegistry();
+		qrImageCache.maxBytes = 1 << 20;
+		qrImageCache.init();
+	}
+
+	@Test
+	void testRenderedImageIsReused()
+	{
+		// given
+		byte[] first = qrImageCache.get("http://localhost:8080/abc", 4, 2, QrFormat.PNG);
+
+		// when
+		byte[] second = qrImageCache.get("http://localhost:8080/abc", 4, 2, QrFormat.PNG);
+
+		// then
+		assertSame(first, second);
+		assertEquals((byte)0x89, first[0]);
+		assertEquals('P', first[1]);
+	}
+
+	@Test
+	void testScaleAndBorderArePartOfTheKey()
+	{
+		// given
+		byte[] small = qrImageCache.get("http://localhost:8080/abc", 4, 2, QrFormat.PNG);
+
+		// when
+		byte[] large = qrImageCache.get("http://localhost:8080/abc", 8, 4, QrFormat.PNG);
+
+		// then
+		assertNotSame(small, large);
+		assertTrue(large.length > small.length);
+	}
+
+	@Test
+	void testInvalidateDropsAllVariantsOfContent()
+	{
+		// given
+		byte[] small = qrImageCache.get("http://localhost:8080/abc", 4, 2, QrFormat.PNG);
+		byte[] large = qrImageCache.get("http://localhost:8080/abc", 8, 4, QrFormat.PNG);
+		byte[] other = qrImageCache.get("http://localhost:8080/xyz", 4, 2, QrFormat.PNG);
+
+		// when
+		qrImageCache.invalidate("http://localhost:8080/abc");
+
+		// then
+		assertNotSame(small, qrImageCache.get("http://localhost:8080/abc", 4, 2, QrFormat.PNG));
+		assertNotSame(large, qrImageCache.get("http://localhost:8080/abc", 8, 4, QrFormat.PNG));
+		assertSame(other, qrImageCache.get("http://localhost:8080/xyz", 4, 2, QrFormat.PNG));
+	}
+}
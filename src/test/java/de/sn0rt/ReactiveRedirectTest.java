@@ -0,0 +1,76 @@
+package de.sn0rt;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.equalTo;
+
+@QuarkusTest
+@TestProfile(ReactiveRedirectTest.ReactiveMode.class)
+class ReactiveRedirectTest
+{
+	@Inject
+	ShortUrlRepository repository;
+
+	@AfterEach
+	@Transactional
+	void cleanup()
+	{
+		repository.deleteAll();
+	}
+
+	@Test
+	void testRedirect()
+	{
+		// given
+		createShortUrl("https://example.com/reactive", "reactive");
+
+		// when & then
+		given()
+			.redirects().follow(false)
+			.when()
+			.get("/reactive")
+			.then()
+			.statusCode(303)
+			.header("Location", equalTo("https://example.com/reactive"));
+	}
+
+	@Test
+	void testRedirectNotFound()
+	{
+		// given
+		String nonExistentCode = "notfound";
+
+		// when & then
+		given()
+			.when()
+			.get("/" + nonExistentCode)
+			.then()
+			.statusCode(404)
+			.contentType(ContentType.HTML);
+	}
+
+	@Transactional
+	void createShortUrl(String originalUrl, String shortCode)
+	{
+		repository.persist(new ShortUrl(shortCode, originalUrl));
+	}
+
+	public static class ReactiveMode implements QuarkusTestProfile
+	{
+		@Override
+		public Map<String, String> getConfigOverrides()
+		{
+			return Map.of("sn0rt.redirect.mode", "reactive");
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package de.sn0rt;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderArtifactStoreTest
+{
+	@TempDir
+	Path directory;
+
+	RenderExecutor renderExecutor;
+	RenderArtifactStore artifactStore;
+	// Current links by short code, standing in for the database
+	Map<String, String> targets = new LinkedHashMap<>();
+
+	@BeforeEach
+	void setUp()
+	{
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		QRCodeService qrCodeService = new QRCodeService();
+		qrCodeService.registry = registry;
+		qrCodeService.init();
+		renderExecutor = new RenderExecutor();
+		renderExecutor.threads = Optional.of(1);
+		renderExecutor.registry = registry;
+		renderExecutor.init();
+		QrImageCache qrImageCache = new QrImageCache();
+		qrImageCache.qrCodeService = qrCodeService;
+		qrImageCache.registry = registry;
+		qrImageCache.maxBytes = 1 << 20;
+		qrImageCache.init();
+		PdfService pdfService = new PdfService();
+		pdfService.qrImageCache = qrImageCache;
+		pdfService.qrCodeService = qrCodeService;
+		pdfService.registry = registry;
+		pdfService.baseUrl = "http://localhost:8080";
+		pdfService.init();
+		artifactStore = new RenderArtifactStore();
+		artifactStore.directory = directory.toString();
+		artifactStore.baseUrl = "http://localhost:8080";
+		artifactStore.qrImageCache = qrImageCache;
+		artifactStore.pdfService = pdfService;
+		artifactStore.renderExecutor = renderExecutor;
+		artifactStore.repository = new ShortUrlRepository()
+		{
+			@Override
+			public Optional<String> findTargetByShortCode(String shortCode)
+			{
+				return Optional.ofNullable(targets.get(shortCode));
+			}
+
+			@Override
+			public void forEachPage(Collection<String> shortCodes, int pageSize, Consumer<List<ShortUrl>> consumer)
+			{
+				consumer.accept(targets.entrySet().stream().map(entry -> new ShortUrl(entry.getKey(), entry.getValue())).toList());
+			}
+		};
+		artifactStore.registry = registry;
+		artifactStore.init();
+	}
+
+	@AfterEach
+	void tearDown()
+	{
+		renderExecutor.shutdown();
+	}
+
+	@Test
+	void testArtifactIsWrittenOnceAndReused() throws IOException
+	{
+		// given
+		Path first = artifactStore.qrImage("abc", QrFormat.PNG);
+		long written = Files.getLastModifiedTime(first).toMillis();
+
+		// when
+		Path second = artifactStore.qrImage("abc", QrFormat.PNG);
+
+		// then
+		assertEquals(first, second);
+		assertTrue(second.startsWith(directory));
+		assertEquals(written, Files.getLastModifiedTime(second).toMillis());
+		assertEquals((byte)0x89, Files.readAllBytes(second)[0]);
+		assertEquals(1.0, artifactStore.hits.count());
+		assertEquals(1.0, artifactStore.misses.count());
+	}
+
+	@Test
+	void testPdfDependsOnTarget()
+	{
+		// given
+		Path before = artifactStore.qrPdf(new ShortUrl("abc", "https://example.com/before"));
+
+		// when
+		Path after = artifactStore.qrPdf(new ShortUrl("abc", "https://example.com/after"));
+
+		// then
+		assertNotEquals(before, after);
+		assertTrue(Files.exists(before));
+		assertTrue(Files.exists(after));
+	}
+
+	@Test
+	void testEvictRemovesAllArtifacts() throws IOException
+	{
+		// given
+		Path png = artifactStore.qrImage("abc", QrFormat.PNG);
+		Path svg = artifactStore.qrImage("abc", QrFormat.SVG);
+		Path pdf = artifactStore.qrPdf(new ShortUrl("abc", "https://example.com"));
+		Path other = artifactStore.qrImage("xyz", QrFormat.PNG);
+
+		// when
+		artifactStore.evict("abc", "https://example.com");
+
+		// then
+		assertFalse(Files.exists(png));
+		assertFalse(Files.exists(svg));
+		assertFalse(Files.exists(pdf));
+		assertTrue(Files.exists(other));
+		try (var files = Files.walk(directory))
+		{
+			assertTrue(files.noneMatch(path -> path.toString().endsWith(".tmp")));
+		}
+	}
+
+	@Test
+	void testRenderKeepsArtifactsOfCurrentTarget()
+	{
+		// given
+		targets.put("abc", "https://example.com");
+
+		// when
+		artifactStore.render("abc", "https://example.com");
+
+		// then - both lookups are served from disk
+		artifactStore.qrImage("abc", QrFormat.PNG);
+		artifactStore.qrPdf(new ShortUrl("abc", "https://example.com"));
+		assertEquals(2.0, artifactStore.misses.count());
+		assertEquals(2.0, artifactStore.hits.count());
+	}
+
+	@Test
+	void testRenderDropsArtifactsOfLinkDeletedMeanwhile() throws IOException
+	{
+		// given
+		// no link "abc"
+
+		// when
+		artifactStore.render("abc", "https://example.com");
+
+		// then
+		try (var files = Files.walk(directory))
+		{
+			assertTrue(files.noneMatch(Files::isRegularFile));
+		}
+	}
+
+	@Test
+	void testRenderDropsPdfOfTargetChangedMeanwhile()
+	{
+		// given
+		targets.put("abc", "https://example.com/after");
+
+		// when
+		artifactStore.render("abc", "https://example.com/before");
+
+		// then - the image is still current, the PDF prints the old target
+		artifactStore.qrImage("abc", QrFormat.PNG);
+		artifactStore.qrPdf(new ShortUrl("abc", "https://example.com/before"));
+		assertEquals(1.0, artifactStore.hits.count());
+		assertEquals(3.0, artifactStore.misses.count());
+	}
+
+	@Test
+	void testSweepDeletesOldUnreferencedArtifacts() throws IOException
+	{
+		// given
+		targets.put("abc", "https://example.com/after");
+		Path image = artifactStore.qrImage("abc", QrFormat.PNG);
+		Path current = artifactStore.qrPdf(new ShortUrl("abc", "https://example.com/after"));
+		Path previous = artifactStore.qrPdf(new ShortUrl("abc", "https://example.com/before"));
+		Path deleted = artifactStore.qrImage("xyz", QrFormat.PNG);
+		Path temp = Files.createTempFile(image.getParent(), "interrupted", ".tmp");
+		Path recent = artifactStore.qrImage("new", QrFormat.SVG);
+		Instant cutoff = Instant.now().minus(RenderArtifactStore.SWEEP_MIN_AGE);
+		for (Path path : List.of(image, current, previous, deleted, temp))
+		{
+			Files.setLastModifiedTime(path, FileTime.from(cutoff.minusSeconds(60)));
+		}
+
+		// when
+		int swept = artifactStore.sweep(cutoff);
+
+		// then
+		assertEquals(3, swept);
+		assertTrue(Files.exists(image));
+		assertTrue(Files.exists(current));
+		assertFalse(Files.exists(previous));
+		assertFalse(Files.exists(deleted));
+		assertFalse(Files.exists(temp));
+		assertTrue(Files.exists(recent));
+	}
+}
@@ -0,0 +1,110 @@
+package de.sn0rt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferTest
+{
+	@Test
+	void testElementsComeOutInOrder()
+	{
+		// given
+		RingBuffer<Integer> buffer = new RingBuffer<>(8);
+		for (int i = 0; i < 5; i++)
+		{
+			buffer.offer(i);
+		}
+
+		// when
+		List<Integer> drained = new ArrayList<>();
+		int count = buffer.drainTo(drained, 10);
+
+		// then
+		assertEquals(5, count);
+		assertEquals(List.of(0, 1, 2, 3, 4), drained);
+		assertNull(buffer.poll());
+		assertEquals(0, buffer.size());
+	}
+
+	@Test
+	void testFullBufferRejectsUntilDrained()
+	{
+		// given
+		RingBuffer<Integer> buffer = new RingBuffer<>(5);
+		for (int i = 0; i < buffer.capacity(); i++)
+		{
+			assertTrue(buffer.offer(i));
+		}
+
+		// when
+		boolean rejected = !buffer.offer(99);
+		buffer.poll();
+
+		// then
+		assertEquals(8, buffer.capacity());
+		assertTrue(rejected);
+		assertTrue(buffer.offer(99));
+		assertEquals(8, buffer.size());
+	}
+
+	@Test
+	void testConcurrentProducersLoseNothing() throws InterruptedException
+	{
+		// given
+		RingBuffer<Integer> buffer = new RingBuffer<>(1024);
+		int producers = 4;
+		int perProducer = 50_000;
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++)
+		{
+			int offset = p * perProducer;
+			threads.add(Thread.ofPlatform().start(() -> {
+				try
+				{
+					start.await();
+				}
+				catch (InterruptedException e)
+				{
+					return;
+				}
+				for (int i = 0; i < perProducer; i++)
+				{
+					while (!buffer.offer(offset + i))
+					{
+						Thread.onSpinWait();
+					}
+				}
+			}));
+		}
+
+		// when
+		start.countDown();
+		Set<Integer> received = new HashSet<>();
+		List<Integer> batch = new ArrayList<>();
+		while (received.size() < producers * perProducer)
+		{
+			buffer.drainTo(batch, 256);
+			for (Integer element : batch)
+			{
+				assertTrue(received.add(element), "duplicate " + element);
+			}
+			batch.clear();
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		// then
+		assertEquals(producers * perProducer, received.size());
+		assertNull(buffer.poll());
+	}
+}
@@ -0,0 +1,51 @@
+package de.sn0rt;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class ShortCodeFilterTest
+{
+	@Inject
+	ShortCodeFilter shortCodeFilter;
+
+	@Inject
+	ShortUrlRepository repository;
+
+	@AfterEach
+	@Transactional
+	void cleanup()
+	{
+		repository.deleteAll();
+	}
+
+	@Test
+	void testCodeInsertedElsewhereIsLearnedFromNotification() throws InterruptedException
+	{
+		// given
+		String shortCode = "elsewhere";
+
+		// when
+		// Plain SQL, as another instance would insert it: no entity listener
+		QuarkusTransaction.requiringNew().run(() -> repository.getEntityManager().createNativeQuery("""
+			insert into short_url (id, shortCode, originalUrl, createdAt, clickCount)
+			values (nextval('short_url_seq'), ?1, 'https://example.com/elsewhere', now(), 0)
+			""")
+			.setParameter(1, shortCode)
+			.executeUpdate());
+
+		// then
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!shortCodeFilter.mightContain(shortCode) && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(50);
+		}
+		assertTrue(shortCodeFilter.mightContain(shortCode));
+	}
+}
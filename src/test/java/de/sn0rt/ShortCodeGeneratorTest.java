@@ -0,0 +1,86 @@
+package de.sn0rt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortCodeGeneratorTest
+{
+	@Test
+	void testBase62RoundTrip()
+	{
+		// given
+		long[] values = { 0, 1, 61, 62, 3843, 3844, 1L << 40, Long.MAX_VALUE };
+
+		// when & then
+		for (long value : values)
+		{
+			assertEquals(value, Base62.decode(Base62.encode(value)));
+		}
+		assertEquals("0", Base62.encode(0));
+		assertEquals("10", Base62.encode(62));
+		assertEquals("0000010", Base62.encode(62, 7));
+	}
+
+	@Test
+	void testScrambleIsCollisionFree()
+	{
+		// given
+		Set<Long> seen = new HashSet<>();
+
+		// when
+		for (long id = 1; id <= 200_000; id++)
+		{
+			seen.add(ShortCodeGenerator.scramble(id, 0));
+		}
+
+		// then
+		assertEquals(200_000, seen.size());
+	}
+
+	@Test
+	void testScrambledCodesHaveFixedLength()
+	{
+		// given
+		ShortCodeGenerator generator = new ShortCodeGenerator();
+		generator.scramble = true;
+
+		// when & then
+		for (long id = 1; id <= 10_000; id++)
+		{
+			String shortCode = generator.encode(id);
+			assertEquals(ShortCodeGenerator.SCRAMBLED_LENGTH, shortCode.length());
+		}
+	}
+
+	@Test
+	void testScrambleKeyChangesCodes()
+	{
+		// given
+		ShortCodeGenerator first = new ShortCodeGenerator();
+		first.scramble = true;
+		first.scrambleKey = 1234;
+		ShortCodeGenerator second = new ShortCodeGenerator();
+		second.scramble = true;
+		second.scrambleKey = 5678;
+
+		// when & then
+		assertNotEquals(first.encode(42), second.encode(42));
+	}
+
+	@Test
+	void testUnscrambledCodesAreSequential()
+	{
+		// given
+		ShortCodeGenerator generator = new ShortCodeGenerator();
+		generator.scramble = false;
+
+		// when & then
+		assertEquals("1", generator.encode(1));
+		assertEquals("Z", generator.encode(35));
+		assertEquals("10", generator.encode(62));
+	}
+}
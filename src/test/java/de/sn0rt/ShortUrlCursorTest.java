@@ -0,0 +1,49 @@
+package de.sn0rt;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortUrlCursorTest
+{
+	@Test
+	void testRoundTripKeepsMicroseconds()
+	{
+		// given
+		ShortUrlSummary shortUrl = new ShortUrlSummary(42L, "abc", "https://example.com", LocalDateTime.of(2024, 5, 17, 8, 30, 15, 123_456_000), 0L);
+
+		// when
+		ShortUrlCursor cursor = ShortUrlCursor.decode(ShortUrlCursor.of(ShortUrlSort.NEWEST, shortUrl).encode());
+
+		// then
+		assertEquals(ShortUrlSort.NEWEST, cursor.sort());
+		assertEquals(42L, cursor.id());
+		assertEquals(shortUrl.createdAt(), cursor.value());
+	}
+
+	@Test
+	void testClickCursor()
+	{
+		// given
+		ShortUrlSummary shortUrl = new ShortUrlSummary(7L, "abc", "https://example.com", LocalDateTime.now(), 1234L);
+
+		// when
+		ShortUrlCursor cursor = ShortUrlCursor.decode(ShortUrlCursor.of(ShortUrlSort.CLICKS, shortUrl).encode());
+
+		// then
+		assertEquals(ShortUrlSort.CLICKS, cursor.sort());
+		assertEquals(1234L, cursor.value());
+	}
+
+	@Test
+	void testMalformedCursorIsRejected()
+	{
+		// given
+		String token = "bm9wZQ";
+
+		// when & then
+		assertThrows(IllegalArgumentException.class, () -> ShortUrlCursor.decode(token));
+	}
+}
@@ -0,0 +1,81 @@
+package de.sn0rt;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class ShortUrlDeleterTest
+{
+	@Inject
+	ShortUrlDeleter deleter;
+
+	@Inject
+	ShortUrlRepository repository;
+
+	@Inject
+	RenderArtifactStore artifactStore;
+
+	@Inject
+	TopLinks topLinks;
+
+	@AfterEach
+	@Transactional
+	void cleanup()
+	{
+		repository.deleteAll();
+	}
+
+	@Test
+	void testCommitDropsInMemoryStateAndFiles()
+	{
+		// given
+		Path png = givenShortUrlWithState("gone");
+
+		// when
+		QuarkusTransaction.requiringNew().run(() -> deleter.delete(repository.findByShortCode("gone").orElseThrow()));
+
+		// then
+		assertFalse(repository.existsByShortCode("gone"));
+		assertFalse(Files.exists(png));
+		assertFalse(isTopLink("gone"));
+	}
+
+	@Test
+	void testRollbackKeepsInMemoryStateAndFiles()
+	{
+		// given
+		Path png = givenShortUrlWithState("kept");
+
+		// when
+		QuarkusTransaction.requiringNew().run(() -> {
+			deleter.delete(repository.findByShortCode("kept").orElseThrow());
+			QuarkusTransaction.setRollbackOnly();
+		});
+
+		// then
+		assertTrue(repository.existsByShortCode("kept"));
+		assertTrue(Files.exists(png));
+		assertTrue(isTopLink("kept"));
+	}
+
+	private Path givenShortUrlWithState(String shortCode)
+	{
+		QuarkusTransaction.requiringNew().run(() -> repository.persist(new ShortUrl(shortCode, "https://example.com/" + shortCode)));
+		topLinks.increment(shortCode);
+		return artifactStore.qrImage(shortCode, QrFormat.PNG);
+	}
+
+	private boolean isTopLink(String shortCode)
+	{
+		return topLinks.top(TopWindow.FIVE_MINUTES, 100).stream().anyMatch(link -> link.shortCode().equals(shortCode));
+	}
+}
@@ -1,11 +1,15 @@
 package de.sn0rt;
 
+import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -44,6 +48,27 @@ class ShortUrlRepositoryTest
 		assertEquals(0L, found.get().clickCount);
 	}
 
+	@Test
+	void testReadProjectionsWithoutTransaction()
+	{
+		// given
+		QuarkusTransaction.requiringNew().run(() -> repository.persist(new ShortUrl("proj1", "https://example.com/projection")));
+
+		// when
+		Optional<String> target = repository.findTargetByShortCode("proj1");
+		Optional<ShortUrlSummary> summary = repository.findSummaryByShortCode("proj1");
+
+		// then
+		assertEquals(Optional.of("https://example.com/projection"), target);
+		assertTrue(summary.isPresent());
+		assertEquals("proj1", summary.get().shortCode());
+		assertEquals("https://example.com/projection", summary.get().originalUrl());
+		assertEquals(0L, summary.get().clickCount());
+		assertNotNull(summary.get().createdAt());
+		assertTrue(repository.findTargetByShortCode("missing").isEmpty());
+		assertTrue(repository.findSummaryByShortCode("missing").isEmpty());
+	}
+
 	@Test
 	@Transactional
 	void testFindByShortCodeNotFound()
@@ -97,6 +122,104 @@ class ShortUrlRepositoryTest
 		assertEquals(1L, updated.clickCount);
 	}
 
+	@Test
+	@Transactional
+	void testAddClickCounts()
+	{
+		// given
+		repository.persist(new ShortUrl("batch1", "https://example.com/1"));
+		repository.persist(new ShortUrl("batch2", "https://example.com/2"));
+		repository.persist(new ShortUrl("batch3", "https://example.com/3"));
+		repository.flush();
+
+		// when
+		repository.addClickCounts(Map.of("batch1", 3L, "batch2", 7L, "unknown", 1L));
+		repository.getEntityManager().clear();
+
+		// then
+		assertEquals(3L, repository.findByShortCode("batch1").orElseThrow().clickCount);
+		assertEquals(7L, repository.findByShortCode("batch2").orElseThrow().clickCount);
+		assertEquals(0L, repository.findByShortCode("batch3").orElseThrow().clickCount);
+	}
+
+	@Test
+	@Transactional
+	void testFindPageWalksForwardAndBack()
+	{
+		// given
+		LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+		for (int i = 1; i <= 5; i++)
+		{
+			ShortUrl shortUrl = new ShortUrl("page" + i, "https://example.com/" + i);
+			shortUrl.createdAt = start.plusMinutes(i);
+			repository.persist(shortUrl);
+		}
+		repository.flush();
+
+		// when
+		ShortUrlPage first = repository.findPage(ShortUrlSort.NEWEST, null, null, null, 2);
+		ShortUrlPage second = repository.findPage(ShortUrlSort.NEWEST, null, first.next(), null, 2);
+		ShortUrlPage third = repository.findPage(ShortUrlSort.NEWEST, null, second.next(), null, 2);
+		ShortUrlPage back = repository.findPage(ShortUrlSort.NEWEST, null, null, second.previous(), 2);
+
+		// then
+		assertEquals(List.of("page5", "page4"), shortCodes(first));
+		assertNull(first.previous());
+		assertEquals(List.of("page3", "page2"), shortCodes(second));
+		assertEquals(List.of("page1"), shortCodes(third));
+		assertNull(third.next());
+		assertEquals(List.of("page5", "page4"), shortCodes(back));
+		assertNull(back.previous());
+		assertNotNull(back.next());
+	}
+
+	@Test
+	@Transactional
+	void testFindPageSortedByClicks()
+	{
+		// given
+		ShortUrl few = new ShortUrl("few", "https://example.com/few");
+		few.clickCount = 1L;
+		ShortUrl many = new ShortUrl("many", "https://example.com/many");
+		many.clickCount = 100L;
+		ShortUrl some = new ShortUrl("some", "https://example.com/some");
+		some.clickCount = 10L;
+		repository.persist(few);
+		repository.persist(many);
+		repository.persist(some);
+		repository.flush();
+
+		// when
+		ShortUrlPage first = repository.findPage(ShortUrlSort.CLICKS, null, null, null, 2);
+		ShortUrlPage second = repository.findPage(ShortUrlSort.CLICKS, null, first.next(), null, 2);
+
+		// then
+		assertEquals(List.of("many", "some"), shortCodes(first));
+		assertEquals(List.of("few"), shortCodes(second));
+	}
+
+	@Test
+	@Transactional
+	void testFindPageFiltersByPrefix()
+	{
+		// given
+		repository.persist(new ShortUrl("promo-a", "https://example.com/a"));
+		repository.persist(new ShortUrl("promo-b", "https://example.com/b"));
+		repository.persist(new ShortUrl("promo_c", "https://example.com/c"));
+		repository.persist(new ShortUrl("other", "https://example.com/other"));
+		repository.flush();
+
+		// when
+		ShortUrlPage page = repository.findPage(ShortUrlSort.NEWEST, "promo-", null, null, 10);
+
+		// then
+		assertEquals(2, page.items().size());
+		assertTrue(shortCodes(page).containsAll(List.of("promo-a", "promo-b")));
+		assertEquals(2, repository.countByPrefix("promo-", 100));
+		assertEquals(4, repository.countByPrefix(null, 100));
+		assertEquals(3, repository.countByPrefix(null, 3));
+	}
+
 	@Test
 	@Transactional
 	void testMultipleShortUrls()
@@ -117,4 +240,9 @@ class ShortUrlRepositoryTest
 		assertTrue(repository.existsByShortCode("code2"));
 		assertTrue(repository.existsByShortCode("code3"));
 	}
+
+	private static List<String> shortCodes(ShortUrlPage page)
+	{
+		return page.items().stream().map(ShortUrlSummary::shortCode).toList();
+	}
 }
@@ -7,9 +7,12 @@ import jakarta.transaction.Transactional;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.Matchers.emptyString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 @QuarkusTest
 class ShortUrlResourceTest
@@ -17,6 +20,15 @@ class ShortUrlResourceTest
 	@Inject
 	ShortUrlRepository repository;
 
+	@Inject
+	ClickCounter clickCounter;
+
+	@Inject
+	ClickRollups clickRollups;
+
+	@Inject
+	UniqueVisitors uniqueVisitors;
+
 	@AfterEach
 	@Transactional
 	void cleanup()
@@ -154,6 +166,41 @@ class ShortUrlResourceTest
 			.body("clickCount", equalTo(2));
 	}
 
+	@Test
+	void testClickCountPersistedOnFlush()
+	{
+		// given
+		String testUrl = "https://example.com/flushed";
+		String shortCode = given()
+			.contentType(ContentType.JSON)
+			.body("{\"url\":\"" + testUrl + "\"}")
+			.when()
+			.post("/shorten")
+			.then()
+			.extract()
+			.path("shortCode");
+
+		given()
+			.redirects().follow(false)
+			.when()
+			.get("/" + shortCode)
+			.then()
+			.statusCode(303);
+
+		// when
+		clickCounter.flush();
+
+		// then
+		assertEquals(0L, clickCounter.pending(shortCode));
+		assertEquals(1L, repository.findByShortCode(shortCode).orElseThrow().clickCount);
+		given()
+			.when()
+			.get("/stats/" + shortCode)
+			.then()
+			.statusCode(200)
+			.body("clickCount", equalTo(1));
+	}
+
 	@Test
 	void testGetStats()
 	{
@@ -180,6 +227,160 @@ class ShortUrlResourceTest
 			.body("createdAt", notNullValue());
 	}
 
+	@Test
+	void testGetStatsTimeSeries()
+	{
+		// given
+		String shortCode = given()
+			.contentType(ContentType.JSON)
+			.body("{\"url\":\"https://example.com/series\"}")
+			.when()
+			.post("/shorten")
+			.then()
+			.extract()
+			.path("shortCode");
+		for (int i = 0; i < 3; i++)
+		{
+			given().redirects().follow(false).when().get("/" + shortCode).then().statusCode(303);
+		}
+		clickRollups.flush();
+
+		// when
+		List<Integer> minutes = given()
+			.queryParam("granularity", "minute")
+			.when()
+			.get("/stats/" + shortCode)
+			.then()
+			.statusCode(200)
+			.body("granularity", equalTo("minute"))
+			.body("series.size()", equalTo(60))
+			.extract()
+			.path("series.clicks");
+		List<Integer> days = given()
+			.queryParam("granularity", "day")
+			.when()
+			.get("/stats/" + shortCode)
+			.then()
+			.statusCode(200)
+			.body("series.size()", equalTo(30))
+			.extract()
+			.path("series.clicks");
+
+		// then
+		assertEquals(3, minutes.stream().mapToInt(Integer::intValue).sum());
+		assertEquals(3, days.get(days.size() - 1));
+	}
+
+	@Test
+	void testGetStatsRejectsInvalidRange()
+	{
+		// given
+		String shortCode = given()
+			.contentType(ContentType.JSON)
+			.body("{\"url\":\"https://example.com/range\"}")
+			.when()
+			.post("/shorten")
+			.then()
+			.extract()
+			.path("shortCode");
+
+		// when & then
+		given()
+			.queryParam("granularity", "week")
+			.when()
+			.get("/stats/" + shortCode)
+			.then()
+			.statusCode(400);
+		given()
+			.queryParam("from", "2026-01-02")
+			.queryParam("to", "2026-01-01")
+			.when()
+			.get("/stats/" + shortCode)
+			.then()
+			.statusCode(400)
+			.body("error", equalTo("from must be before to"));
+		given()
+			.queryParam("from", "2025-01-01")
+			.queryParam("to", "2026-01-01")
+			.queryParam("granularity", "minute")
+			.when()
+			.get("/stats/" + shortCode)
+			.then()
+			.statusCode(400);
+	}
+
+	@Test
+	void testGetTopLinks()
+	{
+		// given
+		for (String code : List.of("top-a", "top-b"))
+		{
+			given()
+				.contentType(ContentType.JSON)
+				.body("{\"url\":\"https://example.com/" + code + "\",\"customCode\":\"" + code + "\"}")
+				.when()
+				.post("/shorten")
+				.then()
+				.statusCode(200);
+		}
+		for (int i = 0; i < 30; i++)
+		{
+			given().redirects().follow(false).when().get("/top-a").then().statusCode(303);
+			if (i < 15)
+			{
+				given().redirects().follow(false).when().get("/top-b").then().statusCode(303);
+			}
+		}
+
+		// when & then
+		given()
+			.queryParam("window", "5m")
+			.queryParam("limit", 2)
+			.when()
+			.get("/stats/top")
+			.then()
+			.statusCode(200)
+			.body("window", equalTo("5m"))
+			.body("links.shortCode", equalTo(List.of("top-a", "top-b")));
+		given()
+			.queryParam("window", "1w")
+			.when()
+			.get("/stats/top")
+			.then()
+			.statusCode(400);
+	}
+
+	@Test
+	void testGetStatsUniqueVisitors()
+	{
+		// given
+		String shortCode = given()
+			.contentType(ContentType.JSON)
+			.body("{\"url\":\"https://example.com/visitors\"}")
+			.when()
+			.post("/shorten")
+			.then()
+			.extract()
+			.path("shortCode");
+		for (String userAgent : List.of("Firefox", "Chrome", "Firefox", "Firefox"))
+		{
+			given().redirects().follow(false).header("User-Agent", userAgent).when().get("/" + shortCode).then().statusCode(303);
+		}
+		uniqueVisitors.flush();
+		given().redirects().follow(false).header("User-Agent", "Safari").when().get("/" + shortCode).then().statusCode(303);
+
+		// when & then
+		given()
+			.queryParam("granularity", "day")
+			.when()
+			.get("/stats/" + shortCode)
+			.then()
+			.statusCode(200)
+			.body("clickCount", equalTo(5))
+			.body("uniqueVisitors", equalTo(3))
+			.body("uniqueVisitorsInRange", equalTo(3));
+	}
+
 	@Test
 	void testGetStatsNotFound()
 	{
@@ -271,6 +472,113 @@ class ShortUrlResourceTest
 			.body("error", equalTo("Custom code already exists"));
 	}
 
+	@Test
+	void testShortenBatch()
+	{
+		// given
+		given()
+			.contentType(ContentType.JSON)
+			.body("{\"url\":\"https://example.com/existing\",\"customCode\":\"taken\"}")
+			.when()
+			.post("/shorten")
+			.then()
+			.statusCode(200);
+
+		String batch = "["
+			+ "{\"url\":\"https://example.com/one\"},"
+			+ "{\"url\":\"https://example.com/two\",\"customCode\":\"batch-two\"},"
+			+ "{\"url\":\"https://example.com/three\",\"customCode\":\"taken\"},"
+			+ "{\"url\":\"https://example.com/four\",\"customCode\":\"batch-two\"},"
+			+ "{\"url\":\" \"}"
+			+ "]";
+
+		// when & then
+		given()
+			.contentType(ContentType.JSON)
+			.body(batch)
+			.when()
+			.post("/shorten/batch")
+			.then()
+			.statusCode(200)
+			.body("created", equalTo(2))
+			.body("conflicts", equalTo(2))
+			.body("invalid", equalTo(1))
+			.body("results.status", equalTo(List.of("created", "created", "conflict", "conflict", "invalid")))
+			.body("results[0].shortCode", notNullValue())
+			.body("results[1].shortCode", equalTo("batch-two"))
+			.body("results[2].error", equalTo("Custom code already exists"))
+			.body("results[3].shortCode", equalTo("batch-two"))
+			.body("results[4].error", equalTo("URL is required"));
+
+		given()
+			.when()
+			.get("/stats/batch-two")
+			.then()
+			.statusCode(200)
+			.body("originalUrl", equalTo("https://example.com/two"));
+	}
+
+	@Test
+	void testShortenBatchNdjson()
+	{
+		// given
+		String lines = "{\"url\":\"https://example.com/one\",\"customCode\":\"ndjson-one\"}\n"
+			+ "{\"url\":\"https://example.com/two\"}\n";
+
+		// when & then
+		given()
+			.contentType("application/x-ndjson")
+			.body(lines)
+			.when()
+			.post("/shorten/batch")
+			.then()
+			.statusCode(200)
+			.body("created", equalTo(2))
+			.body("results[0].shortCode", equalTo("ndjson-one"))
+			.body("results[1].originalUrl", equalTo("https://example.com/two"));
+	}
+
+	@Test
+	void testShortenBatchNdjsonSpanningSeveralChunks()
+	{
+		// given
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < 250; i++)
+		{
+			lines.append("{\"url\":\"https://example.com/chunk/").append(i).append("\"}\n");
+		}
+
+		// when & then
+		given()
+			.contentType("application/x-ndjson")
+			.body(lines.toString())
+			.when()
+			.post("/shorten/batch")
+			.then()
+			.statusCode(200)
+			.body("created", equalTo(250))
+			.body("failed", equalTo(0))
+			.body("results[249].index", equalTo(249))
+			.body("results[249].originalUrl", equalTo("https://example.com/chunk/249"));
+	}
+
+	@Test
+	void testShortenBatchEmpty()
+	{
+		// given
+		String batch = "[]";
+
+		// when & then
+		given()
+			.contentType(ContentType.JSON)
+			.body(batch)
+			.when()
+			.post("/shorten/batch")
+			.then()
+			.statusCode(400)
+			.body("error", equalTo("At least one URL is required"));
+	}
+
 	@Test
 	void testCustomCodeRedirect()
 	{
@@ -407,6 +715,48 @@ class ShortUrlResourceTest
 			.body("originalUrl", equalTo(updatedUrl));
 	}
 
+	@Test
+	void testRedirectFollowsUpdatedUrl()
+	{
+		// given
+		String originalUrl = "https://example.com/before";
+		String updatedUrl = "https://example.com/after";
+		String shortCode = given()
+			.contentType(ContentType.JSON)
+			.body("{\"url\":\"" + originalUrl + "\"}")
+			.when()
+			.post("/shorten")
+			.then()
+			.extract()
+			.path("shortCode");
+
+		given()
+			.redirects().follow(false)
+			.when()
+			.get("/" + shortCode)
+			.then()
+			.statusCode(303)
+			.header("Location", equalTo(originalUrl));
+
+		// when
+		given()
+			.contentType(ContentType.JSON)
+			.body("{\"url\":\"" + updatedUrl + "\"}")
+			.when()
+			.put("/" + shortCode)
+			.then()
+			.statusCode(200);
+
+		// then
+		given()
+			.redirects().follow(false)
+			.when()
+			.get("/" + shortCode)
+			.then()
+			.statusCode(303)
+			.header("Location", equalTo(updatedUrl));
+	}
+
 	@Test
 	void testDeleteShortUrl()
 	{
@@ -458,6 +808,13 @@ class ShortUrlResourceTest
 			.extract()
 			.path("shortCode");
 
+		given()
+			.redirects().follow(false)
+			.when()
+			.get("/" + shortCode)
+			.then()
+			.statusCode(303);
+
 		// when
 		given()
 			.when()
@@ -0,0 +1,110 @@
+package de.sn0rt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTest
+{
+	@Test
+	void testCountsAreExactBelowCapacity()
+	{
+		// given
+		SpaceSaving summary = new SpaceSaving(10);
+
+		// when
+		for (int i = 0; i < 5; i++)
+		{
+			for (int j = 0; j <= i; j++)
+			{
+				summary.offer("key" + i, 1);
+			}
+		}
+
+		// then
+		Map<String, Long> counts = counts(summary);
+		assertEquals(5, summary.size());
+		for (int i = 0; i < 5; i++)
+		{
+			assertEquals(i + 1, counts.get("key" + i));
+		}
+	}
+
+	@Test
+	void testHeavyHittersSurviveALongTail()
+	{
+		// given
+		SpaceSaving summary = new SpaceSaving(50);
+		Random random = new Random(42);
+
+		// when
+		for (int i = 0; i < 100_000; i++)
+		{
+			if (i % 10 == 0)
+			{
+				summary.offer("hot", 1);
+			}
+			else if (i % 7 == 0)
+			{
+				summary.offer("warm", 1);
+			}
+			else
+			{
+				summary.offer("tail" + random.nextInt(50_000), 1);
+			}
+		}
+
+		// then
+		Map<String, Long> counts = counts(summary);
+		assertEquals(50, summary.size());
+		assertTrue(counts.get("hot") >= 10_000);
+		assertTrue(counts.get("warm") >= 12_857);
+	}
+
+	@Test
+	void testRemovedKeyIsForgotten()
+	{
+		// given
+		SpaceSaving summary = new SpaceSaving(3);
+		summary.offer("a", 5);
+		summary.offer("b", 1);
+		summary.offer("c", 3);
+
+		// when
+		summary.remove("a");
+		summary.offer("d", 2);
+
+		// then
+		Map<String, Long> counts = counts(summary);
+		assertEquals(Map.of("b", 1L, "c", 3L, "d", 2L), counts);
+	}
+
+	@Test
+	void testUntrackedBoundIsHighestEvictedCount()
+	{
+		// given
+		SpaceSaving summary = new SpaceSaving(2);
+		summary.offer("a", 5);
+		summary.offer("b", 2);
+
+		// when
+		summary.offer("c", 1);
+		summary.remove("c");
+
+		// then
+		assertEquals(2, summary.untrackedBound());
+		summary.clear();
+		assertEquals(0, summary.untrackedBound());
+	}
+
+	private static Map<String, Long> counts(SpaceSaving summary)
+	{
+		Map<String, Long> counts = new HashMap<>();
+		summary.forEach((key, count, error) -> counts.put(key, count));
+		return counts;
+	}
+}
@@ -0,0 +1,100 @@
+package de.sn0rt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopLinksTest
+{
+	TopLinks topLinks;
+
+	@BeforeEach
+	void setUp()
+	{
+		topLinks = new TopLinks();
+		topLinks.capacity = 20;
+		topLinks.stripes = Optional.of(4);
+		topLinks.init();
+	}
+
+	@Test
+	void testMostClickedLinksComeFirst() throws InterruptedException
+	{
+		// given
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++)
+		{
+			threads[t] = Thread.ofPlatform().start(() -> {
+				for (int i = 0; i < 1000; i++)
+				{
+					topLinks.increment("hot");
+					if (i % 2 == 0)
+					{
+						topLinks.increment("warm");
+					}
+					topLinks.increment("tail" + i);
+				}
+			});
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		// when
+		List<TopLinks.TopLink> top = topLinks.top(TopWindow.HOUR, 2);
+
+		// then
+		assertEquals(2, top.size());
+		assertEquals("hot", top.get(0).shortCode());
+		assertTrue(top.get(0).clicks() >= 4000);
+		assertEquals("warm", top.get(1).shortCode());
+		assertTrue(top.get(1).clicks() >= 2000);
+	}
+
+	@Test
+	void testLinkEvictedFromOneStripeKeepsItsUpperBound()
+	{
+		// given
+		topLinks = new TopLinks();
+		topLinks.capacity = 2;
+		topLinks.stripes = Optional.of(2);
+		topLinks.init();
+		long period = System.currentTimeMillis() / TopWindow.FIVE_MINUTES.sliceMillis;
+		TopLinks.Slice[] slice = topLinks.rings.get(TopWindow.FIVE_MINUTES)[(int)(period % TopWindow.FIVE_MINUTES.slices)];
+		for (String shortCode : new String[] { "a", "a", "b", "c" })
+		{
+			slice[0].offer(period, shortCode);
+		}
+		for (int i = 0; i < 3; i++)
+		{
+			slice[1].offer(period, "b");
+		}
+
+		// when
+		List<TopLinks.TopLink> top = topLinks.top(TopWindow.FIVE_MINUTES, 10);
+
+		// then
+		// "b" was evicted from the first stripe after one click
+		assertEquals(List.of(new TopLinks.TopLink("b", 4, 1), new TopLinks.TopLink("a", 2, 0), new TopLinks.TopLink("c", 2, 1)), top);
+	}
+
+	@Test
+	void testDiscardedLinkDisappears()
+	{
+		// given
+		topLinks.increment("gone");
+		topLinks.increment("kept");
+
+		// when
+		topLinks.discard("gone");
+
+		// then
+		List<TopLinks.TopLink> top = topLinks.top(TopWindow.FIVE_MINUTES, 10);
+		assertEquals(List.of(new TopLinks.TopLink("kept", 1, 0)), top);
+	}
+}
@@ -0,0 +1,113 @@
+package de.sn0rt;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.junit.virtual.ShouldNotPin;
+import io.quarkus.test.junit.virtual.VirtualThreadUnit;
+import io.restassured.http.ContentType;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.CoreMatchers.equalTo;
+
+@QuarkusTest
+@TestProfile(VirtualThreadsTest.VirtualThreadsEnabled.class)
+@VirtualThreadUnit
+@ShouldNotPin
+class VirtualThreadsTest
+{
+	@Inject
+	ShortUrlRepository repository;
+
+	@AfterEach
+	@Transactional
+	void cleanup()
+	{
+		repository.deleteAll();
+	}
+
+	@Test
+	void testApiEndpointsDoNotPin()
+	{
+		// given
+		String testUrl = "https://example.com/virtual";
+
+		// when
+		String shortCode = given()
+			.contentType(ContentType.JSON)
+			.body("{\"url\":\"" + testUrl + "\"}")
+			.when()
+			.post("/shorten")
+			.then()
+			.statusCode(200)
+			.extract()
+			.path("shortCode");
+
+		// then
+		given()
+			.when()
+			.get("/stats/" + shortCode)
+			.then()
+			.statusCode(200)
+			.body("originalUrl", equalTo(testUrl));
+	}
+
+	@Test
+	void testRedirectLookupDoesNotPin()
+	{
+		// given
+		createShortUrl("https://example.com/virtual-redirect", "vredirect");
+
+		// when & then
+		given()
+			.redirects().follow(false)
+			.when()
+			.get("/vredirect")
+			.then()
+			.statusCode(303);
+	}
+
+	@Test
+	void testAdminRenderingDoesNotPin()
+	{
+		// given
+		createShortUrl("https://example.com/virtual-admin", "vadmin");
+
+		// when & then
+		given()
+			.auth().basic("admin", "admin")
+			.when()
+			.get("/admin")
+			.then()
+			.statusCode(200);
+
+		given()
+			.auth().basic("admin", "admin")
+			.when()
+			.get("/admin/qr/vadmin/pdf")
+			.then()
+			.statusCode(200)
+			.contentType("application/pdf");
+	}
+
+	@Transactional
+	void createShortUrl(String originalUrl, String shortCode)
+	{
+		repository.persist(new ShortUrl(shortCode, originalUrl));
+	}
+
+	public static class VirtualThreadsEnabled implements QuarkusTestProfile
+	{
+		@Override
+		public Map<String, String> getConfigOverrides()
+		{
+			return Map.of("quarkus.virtual-threads.enabled", "true");
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package de.sn0rt;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+class VisitorSketchRepositoryTest
+{
+	@Inject
+	VisitorSketchRepository repository;
+
+	@AfterEach
+	void cleanup()
+	{
+		QuarkusTransaction.requiringNew().run(() -> repository.deleteByShortCode("race"));
+	}
+
+	@Test
+	void testConcurrentFirstFlushesAreCombined() throws InterruptedException
+	{
+		// given
+		LocalDate today = LocalDate.now(ZoneOffset.UTC);
+		CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[2];
+		for (int t = 0; t < threads.length; t++)
+		{
+			HyperLogLog sketch = new HyperLogLog(HyperLogLog.DEFAULT_PRECISION);
+			for (int i = 0; i < 1000; i++)
+			{
+				sketch.add(Hashing.hash64("visitor-" + t + "-" + i));
+			}
+			threads[t] = Thread.ofPlatform().start(() -> {
+				try
+				{
+					start.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+				}
+				QuarkusTransaction.requiringNew().run(() -> repository.merge(Map.of(new UniqueVisitors.Bucket("race", today), sketch)));
+			});
+		}
+
+		// when
+		start.countDown();
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		// then
+		long lifetime = QuarkusTransaction.requiringNew().call(() -> repository.findLifetime("race")).orElseThrow().estimate();
+		long daily = QuarkusTransaction.requiringNew().call(() -> repository.findDays("race", today, today)).estimate();
+		assertEquals(2000, lifetime, 100);
+		assertEquals(2000, daily, 100);
+	}
+}